@@ -44,6 +44,7 @@ import org.jboss.galleon.state.ProvisionedConfig;
 import org.wildfly.core.embedded.EmbeddedManagedProcess;
 import org.wildfly.core.embedded.EmbeddedProcessFactory;
 import org.wildfly.core.embedded.EmbeddedProcessStartException;
+import org.wildfly.galleon.plugin.ProvisioningEvent;
 import org.wildfly.galleon.plugin.WfConstants;
 import org.wildfly.galleon.plugin.server.ForkedEmbeddedUtil;
 
@@ -135,7 +136,11 @@ public class WfConfigGenerator implements ForkedEmbeddedUtil.ForkCallback {
         if(forkEmbedded) {
             scriptWriter.close();
             scriptWriter = null;
+            final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.CONFIG_FORK)
+                    .set("script", script)
+                    .set("bytes", script.toFile().length());
             ForkedEmbeddedUtil.fork(this, jbossHome, script.toString());
+            event.commit();
         }
     }
 
@@ -191,6 +196,7 @@ public class WfConfigGenerator implements ForkedEmbeddedUtil.ForkCallback {
         //System.out.println("embed server " + jbossHome + " " + Arrays.asList(args));
         this.args = args;
         this.hc = false;
+        final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.EMBEDDED_BOOT).set("process", WfConstants.STANDALONE);
         embeddedProcess = EmbeddedProcessFactory.createStandaloneServer(jbossHome, null, null, args);
         try {
             embeddedProcess.start();
@@ -199,6 +205,7 @@ public class WfConfigGenerator implements ForkedEmbeddedUtil.ForkCallback {
         }
         mcc = embeddedProcess.getModelControllerClient();
         waitForServer();
+        event.commit();
     }
 
     void startHc(String... args) throws ProvisioningException {
@@ -223,6 +230,7 @@ public class WfConfigGenerator implements ForkedEmbeddedUtil.ForkCallback {
         //System.out.println("embed hc " + jbossHome + " " + Arrays.asList(args));
         this.args = args;
         this.hc = true;
+        final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.EMBEDDED_BOOT).set("process", WfConstants.HOST);
         embeddedProcess = EmbeddedProcessFactory.createHostController(jbossHome, null, null, args);
         try {
             embeddedProcess.start();
@@ -230,6 +238,7 @@ public class WfConfigGenerator implements ForkedEmbeddedUtil.ForkCallback {
             throw new ProvisioningException("Failed to start embedded hc", e);
         }
         mcc = embeddedProcess.getModelControllerClient();
+        event.commit();
         //waitForHc();
     }
 
@@ -286,8 +295,16 @@ public class WfConfigGenerator implements ForkedEmbeddedUtil.ForkCallback {
     }
 
     private void doHandle(ModelNode op) throws ProvisioningException {
+        final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.CONFIG_OPERATION);
+        if(event.isEnabled()) {
+            event.set("operation", Operations.getOperationName(op));
+            if(op.hasDefined(ClientConstants.OP_ADDR)) {
+                event.set("address", op.get(ClientConstants.OP_ADDR).asString());
+            }
+        }
         try {
             final ModelNode response = mcc.execute(op);
+            event.commit();
             if(Operations.isSuccessfulOutcome(response)) {
                 return;
             }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.galleon.ProvisioningException;
+import org.jboss.galleon.universe.maven.MavenArtifact;
+
+/**
+ * Memoizes {@link Utils#toArtifactCoords(Map, String, boolean)}. The parsed and resolved coordinates
+ * are cached per artifact versions map instance, i.e. the maps are expected not to change while
+ * the cache is in use.
+ *
+ * Since {@link MavenArtifact} is mutable, a new instance is returned by every call.
+ */
+class ArtifactCoordsCache {
+
+    private static final String[] UNRESOLVED = new String[0];
+
+    private final Map<Map<String, String>, Map<String, String[]>> cache = new IdentityHashMap<>();
+
+    MavenArtifact toArtifactCoords(Map<String, String> versionProps, String str, boolean optional) throws ProvisioningException {
+        Map<String, String[]> coordsCache;
+        synchronized (cache) {
+            coordsCache = cache.get(versionProps);
+            if (coordsCache == null) {
+                coordsCache = new ConcurrentHashMap<>();
+                cache.put(versionProps, coordsCache);
+            }
+        }
+        String[] coords = coordsCache.get(str);
+        if (coords == null) {
+            coords = Utils.resolveCoords(versionProps, str, optional);
+            coordsCache.put(str, coords == null ? UNRESOLVED : coords);
+        } else if (coords == UNRESOLVED && !optional) {
+            // fails with the appropriate error
+            coords = Utils.resolveCoords(versionProps, str, false);
+        }
+        return coords == null || coords == UNRESOLVED ? null : Utils.toArtifact(coords);
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.jboss.galleon.util.CollectionUtils;
+
+/**
+ * Reverse index of the artifacts of the JBoss modules, i.e. the mapping of groupId:artifactId[:classifier]
+ * to the feature-packs, packages and modules that bring the artifact in.
+ *
+ * The index of a feature-pack is generated when the feature-pack is built and stored as
+ * {@link WfConstants#ARTIFACT_INDEX} among the feature-pack resources, in which case the feature-pack
+ * of the entries is not set. During provisioning the indexes of the feature-packs are merged, limited
+ * to the installed packages and stored as {@link #INSTALLED} in the provisioned state of the installation.
+ */
+public class ArtifactIndex {
+
+    public static final String INSTALLED = "wildfly-artifact-index.txt";
+
+    private static final String HEADER = "# WildFly artifact index 1";
+
+    private static final String MAIN_SLOT = "main";
+
+    /**
+     * A module that brings in the artifact.
+     */
+    public static class Entry {
+
+        private final String featurePack;
+        private final String packageName;
+        private final String module;
+
+        Entry(String featurePack, String packageName, String module) {
+            this.featurePack = featurePack;
+            this.packageName = packageName;
+            this.module = module;
+        }
+
+        /**
+         * @return  feature-pack location or null in the index of a single feature-pack
+         */
+        public String getFeaturePack() {
+            return featurePack;
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        /**
+         * @return  module name, followed by the slot unless it is the main slot
+         */
+        public String getModule() {
+            return module;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((featurePack == null) ? 0 : featurePack.hashCode());
+            result = prime * result + ((module == null) ? 0 : module.hashCode());
+            result = prime * result + ((packageName == null) ? 0 : packageName.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            Entry other = (Entry) obj;
+            if (featurePack == null) {
+                if (other.featurePack != null)
+                    return false;
+            } else if (!featurePack.equals(other.featurePack))
+                return false;
+            if (module == null) {
+                if (other.module != null)
+                    return false;
+            } else if (!module.equals(other.module))
+                return false;
+            if (packageName == null) {
+                if (other.packageName != null)
+                    return false;
+            } else if (!packageName.equals(other.packageName))
+                return false;
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return (featurePack == null ? "" : featurePack + ' ') + packageName + " (" + module + ')';
+        }
+    }
+
+    /**
+     * Returns the key of an artifact in the index.
+     *
+     * @param coords  groupId:artifactId[:version[:classifier[:...]]] or groupId:artifactId::classifier
+     * @return  groupId:artifactId[:classifier]
+     */
+    public static String toKey(String coords) {
+        final String[] parts = coords.split(":");
+        if(parts.length < 2) {
+            throw new IllegalArgumentException("Unexpected artifact coordinates format: " + coords);
+        }
+        final String ga = parts[0] + ':' + parts[1];
+        return parts.length > 3 && !parts[3].isEmpty() ? ga + ':' + parts[3] : ga;
+    }
+
+    /**
+     * Loads an index.
+     *
+     * @param file  index file
+     * @return  the index or null if the file does not exist or its format is not recognized
+     * @throws IOException  in case of a failure
+     */
+    public static ArtifactIndex load(Path file) throws IOException {
+        if(!Files.exists(file)) {
+            return null;
+        }
+        final ArtifactIndex index = new ArtifactIndex();
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if(!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            String line = reader.readLine();
+            while(line != null) {
+                final String[] parts = line.split("\t", -1);
+                if(parts.length != 4) {
+                    throw new IOException("Unexpected line in " + file + ": " + line);
+                }
+                index.add(parts[0], new Entry(parts[1].isEmpty() ? null : parts[1], parts[2], parts[3]));
+                line = reader.readLine();
+            }
+        }
+        return index;
+    }
+
+    private final Map<String, List<Entry>> entries = new TreeMap<>();
+
+    /**
+     * Adds the artifacts of the module of a package.
+     *
+     * @param packageName  package name
+     * @param descriptor  module descriptor
+     * @param artifactVersions  resolves the coordinates of an artifact expression
+     *                          to groupId:artifactId:version:[classifier]:type or null
+     */
+    public void addModule(String packageName, ModuleDescriptor descriptor, Function<String, String> artifactVersions) {
+        if(descriptor.getArtifacts().isEmpty()) {
+            return;
+        }
+        final String module = MAIN_SLOT.equals(descriptor.getSlot()) ? descriptor.getName() : descriptor.getName() + ':' + descriptor.getSlot();
+        final Entry entry = new Entry(null, packageName, module);
+        for(ModuleDescriptor.Artifact artifact : descriptor.getArtifacts()) {
+            String coords = artifact.getCoords();
+            if(artifact.isExpression()) {
+                final String resolved = artifactVersions.apply(coords);
+                if(resolved != null) {
+                    coords = resolved;
+                }
+            }
+            add(toKey(coords), entry);
+        }
+    }
+
+    /**
+     * Adds the entries of the index of a feature-pack.
+     *
+     * @param featurePack  feature-pack location
+     * @param fpIndex  index of the feature-pack
+     * @param packageFilter  accepts the names of the packages whose entries should be added
+     */
+    public void addAll(String featurePack, ArtifactIndex fpIndex, Predicate<String> packageFilter) {
+        for(Map.Entry<String, List<Entry>> fpEntries : fpIndex.entries.entrySet()) {
+            for(Entry entry : fpEntries.getValue()) {
+                if(packageFilter.test(entry.packageName)) {
+                    add(fpEntries.getKey(), new Entry(featurePack, entry.packageName, entry.module));
+                }
+            }
+        }
+    }
+
+    private void add(String key, Entry entry) {
+        final List<Entry> keyEntries = entries.get(key);
+        if(keyEntries == null) {
+            entries.put(key, Collections.singletonList(entry));
+        } else if(!keyEntries.contains(entry)) {
+            entries.put(key, CollectionUtils.add(keyEntries, entry));
+        }
+    }
+
+    /**
+     * Returns the modules that bring in the artifact.
+     *
+     * @param groupId  group id
+     * @param artifactId  artifact id
+     * @param classifier  classifier or null
+     * @return  modules that bring in the artifact, never null
+     */
+    public List<Entry> get(String groupId, String artifactId, String classifier) {
+        final String ga = groupId + ':' + artifactId;
+        return get(classifier == null || classifier.isEmpty() ? ga : ga + ':' + classifier);
+    }
+
+    /**
+     * Returns the modules that bring in the artifact.
+     *
+     * @param key  groupId:artifactId[:classifier]
+     * @return  modules that bring in the artifact, never null
+     */
+    public List<Entry> get(String key) {
+        final List<Entry> keyEntries = entries.get(key);
+        return keyEntries == null ? Collections.emptyList() : Collections.unmodifiableList(keyEntries);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public void store(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for(Map.Entry<String, List<Entry>> keyEntries : entries.entrySet()) {
+                for(Entry entry : keyEntries.getValue()) {
+                    writer.write(keyEntries.getKey());
+                    writer.write('\t');
+                    writer.write(entry.featurePack == null ? "" : entry.featurePack);
+                    writer.write('\t');
+                    writer.write(entry.packageName);
+                    writer.write('\t');
+                    writer.write(entry.module);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+}
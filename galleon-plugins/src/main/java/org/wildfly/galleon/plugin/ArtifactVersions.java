@@ -0,0 +1,410 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.jboss.galleon.Errors;
+import org.jboss.galleon.ProvisioningException;
+import org.jboss.galleon.util.PropertyUtils;
+
+/**
+ * Artifact versions of a feature-pack, i.e. the mapping of groupId:artifactId[::classifier]
+ * to groupId:artifactId:version:[classifier]:type.
+ *
+ * Besides {@link WfConstants#ARTIFACT_VERSIONS_PROPS}, feature-packs may include
+ * {@link WfConstants#ARTIFACT_VERSIONS_INDEX}, a binary index of the same mapping that is memory-mapped
+ * and searched instead of being loaded into a map. The index consists of
+ * <ul>
+ * <li>the magic number and the format version (ints), the size (a long) and the CRC32 (an int) of the properties
+ * file the index was built from and the number of entries (an int);</li>
+ * <li>the offsets of the key and the value of each entry (pairs of ints) sorted by the UTF-8 bytes of the keys;</li>
+ * <li>the keys and the values, each of them being the length of its UTF-8 bytes (an int) followed by the bytes.</li>
+ * </ul>
+ * The index is not used if the properties file was modified after the index and its size or CRC32 no longer match
+ * the ones recorded in the index.
+ */
+public class ArtifactVersions {
+
+    private static final int MAGIC = 0x57464156; // WFAV
+    private static final int VERSION = 2;
+    private static final int PROPS_SIZE_OFFSET = 8;
+    private static final int PROPS_CRC_OFFSET = 16;
+    private static final int COUNT_OFFSET = 20;
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * Loads the artifact versions from the index in the directory or, if the index is not present
+     * or the properties file in the directory was changed after the index was built, from the properties file.
+     *
+     * @param wfResDir  feature-pack resources directory
+     * @return  artifact versions or null if the directory does not include them
+     * @throws ProvisioningException  in case of a failure
+     */
+    public static Map<String, String> load(Path wfResDir) throws ProvisioningException {
+        final Path index = wfResDir.resolve(WfConstants.ARTIFACT_VERSIONS_INDEX);
+        final Path props = wfResDir.resolve(WfConstants.ARTIFACT_VERSIONS_PROPS);
+        if(Files.exists(index)) {
+            final ByteBuffer buf;
+            try {
+                buf = readIndex(index);
+            } catch (IOException e) {
+                throw new ProvisioningException(Errors.readFile(index), e);
+            }
+            if(!Files.exists(props) || isIndexOf(buf, index, props)) {
+                return new IndexMap(buf);
+            }
+        }
+        if(Files.exists(props)) {
+            return Utils.readProperties(props);
+        }
+        return null;
+    }
+
+    /**
+     * Whether the index was built from the current content of the properties file. The content is checked only if
+     * the properties file was modified after the index (e.g. it was edited or both were extracted from an archive).
+     */
+    private static boolean isIndexOf(ByteBuffer buf, Path index, Path props) throws ProvisioningException {
+        try {
+            if(Files.getLastModifiedTime(props).compareTo(Files.getLastModifiedTime(index)) <= 0) {
+                return true;
+            }
+            if(Files.size(props) != buf.getLong(PROPS_SIZE_OFFSET)) {
+                return false;
+            }
+            return crc32(Files.readAllBytes(props)) == buf.getInt(PROPS_CRC_OFFSET);
+        } catch (IOException e) {
+            throw new ProvisioningException(Errors.readFile(props), e);
+        }
+    }
+
+    private static int crc32(byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns a read-only view of the artifact versions of several feature-packs. In case the same key
+     * is mapped in more than one of them, the value from the one that appears last in the list wins.
+     *
+     * @param versions  artifact versions of the feature-packs
+     * @return  merged view
+     */
+    public static Map<String, String> merge(List<Map<String, String>> versions) {
+        if(versions.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if(versions.size() == 1) {
+            return versions.get(0);
+        }
+        return new MergedMap(versions);
+    }
+
+    /**
+     * Writes the binary index of the artifact versions.
+     *
+     * @param versions  artifact versions
+     * @param props  the properties file the artifact versions were stored in
+     * @param target  index file
+     * @throws IOException  in case of a failure
+     */
+    public static void writeIndex(Map<String, String> versions, Path props, Path target) throws IOException {
+        final byte[] propsBytes = Files.readAllBytes(props);
+        final byte[][] keys = new byte[versions.size()][];
+        final Map<String, byte[]> values = new HashMap<>(versions.size());
+        int i = 0;
+        for(Map.Entry<String, String> entry : versions.entrySet()) {
+            keys[i++] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            values.put(entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        Arrays.sort(keys, ArtifactVersions::compare);
+
+        try(OutputStream out = Files.newOutputStream(target); DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(propsBytes.length);
+            data.writeInt(crc32(propsBytes));
+            data.writeInt(keys.length);
+            int offset = HEADER_SIZE + keys.length * 8;
+            for(byte[] key : keys) {
+                final byte[] value = values.get(new String(key, StandardCharsets.UTF_8));
+                data.writeInt(offset);
+                offset += 4 + key.length;
+                data.writeInt(offset);
+                offset += 4 + value.length;
+            }
+            for(byte[] key : keys) {
+                final byte[] value = values.get(new String(key, StandardCharsets.UTF_8));
+                data.writeInt(key.length);
+                data.write(key);
+                data.writeInt(value.length);
+                data.write(value);
+            }
+        }
+    }
+
+    private static ByteBuffer readIndex(Path index) throws IOException {
+        final ByteBuffer buf;
+        try(FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            if(PropertyUtils.isWindows()) {
+                // a mapped file could not be deleted together with the feature-pack layout
+                buf = ByteBuffer.allocate((int) channel.size());
+                while(buf.hasRemaining()) {
+                    if(channel.read(buf) < 0) {
+                        break;
+                    }
+                }
+                buf.flip();
+            } else {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        if(buf.limit() < 8 || buf.getInt(0) != MAGIC) {
+            throw new IOException(index + " is not an artifact versions index");
+        }
+        if(buf.getInt(4) != VERSION) {
+            throw new IOException("Unsupported artifact versions index version " + buf.getInt(4) + " of " + index);
+        }
+        if(buf.limit() < HEADER_SIZE) {
+            throw new IOException("Corrupted artifact versions index " + index + ": the header is truncated");
+        }
+        validate(buf, index);
+        return buf;
+    }
+
+    /**
+     * Checks that the offset table and the strings it points to are within the index and that the keys
+     * are sorted, so that a truncated or corrupted index is reported when it is loaded
+     * instead of failing the lookups.
+     */
+    private static void validate(ByteBuffer buf, Path index) throws IOException {
+        final int size = buf.getInt(COUNT_OFFSET);
+        final long dataOffset = HEADER_SIZE + size * 8L;
+        if(size < 0 || dataOffset > buf.limit()) {
+            throw new IOException("Corrupted artifact versions index " + index + ": " + size + " entries do not fit in "
+                    + buf.limit() + " bytes");
+        }
+        int previousKey = -1;
+        for(int i = 0; i < size; ++i) {
+            final int entry = HEADER_SIZE + i * 8;
+            final int key = buf.getInt(entry);
+            checkString(buf, key, dataOffset, index);
+            checkString(buf, buf.getInt(entry + 4), dataOffset, index);
+            if(previousKey >= 0 && compare(buf, previousKey, key) >= 0) {
+                throw new IOException("Corrupted artifact versions index " + index + ": the keys are not sorted");
+            }
+            previousKey = key;
+        }
+    }
+
+    private static void checkString(ByteBuffer buf, int offset, long dataOffset, Path index) throws IOException {
+        if(offset < dataOffset || offset > buf.limit() - 4) {
+            throw new IOException("Corrupted artifact versions index " + index + ": offset " + offset + " is out of bounds");
+        }
+        final int length = buf.getInt(offset);
+        if(length < 0 || length > buf.limit() - 4 - offset) {
+            throw new IOException("Corrupted artifact versions index " + index + ": length " + length + " at offset "
+                    + offset + " is out of bounds");
+        }
+    }
+
+    private static int compare(ByteBuffer buf, int offset1, int offset2) {
+        final int length1 = buf.getInt(offset1);
+        final int length2 = buf.getInt(offset2);
+        final int len = Math.min(length1, length2);
+        for(int i = 0; i < len; ++i) {
+            final int c = (buf.get(offset1 + 4 + i) & 0xff) - (buf.get(offset2 + 4 + i) & 0xff);
+            if(c != 0) {
+                return c;
+            }
+        }
+        return length1 - length2;
+    }
+
+    private static int compare(byte[] b1, byte[] b2) {
+        final int len = Math.min(b1.length, b2.length);
+        for(int i = 0; i < len; ++i) {
+            final int c = (b1[i] & 0xff) - (b2[i] & 0xff);
+            if(c != 0) {
+                return c;
+            }
+        }
+        return b1.length - b2.length;
+    }
+
+    private static class IndexMap extends AbstractMap<String, String> {
+
+        private final ByteBuffer buf;
+        private final int size;
+        private Set<Map.Entry<String, String>> entrySet;
+
+        IndexMap(ByteBuffer buf) {
+            this.buf = buf;
+            this.size = buf.getInt(COUNT_OFFSET);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public String get(Object key) {
+            if(!(key instanceof String)) {
+                return null;
+            }
+            final int i = indexOf((String) key);
+            return i < 0 ? null : string(buf.getInt(HEADER_SIZE + i * 8 + 4));
+        }
+
+        private int indexOf(String key) {
+            final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = size - 1;
+            while(low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int c = compareKey(buf.getInt(HEADER_SIZE + mid * 8), bytes);
+                if(c < 0) {
+                    low = mid + 1;
+                } else if(c > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compareKey(int offset, byte[] key) {
+            final int keyLength = buf.getInt(offset);
+            offset += 4;
+            final int len = Math.min(keyLength, key.length);
+            for(int i = 0; i < len; ++i) {
+                final int c = (buf.get(offset + i) & 0xff) - (key[i] & 0xff);
+                if(c != 0) {
+                    return c;
+                }
+            }
+            return keyLength - key.length;
+        }
+
+        private String string(int offset) {
+            final byte[] bytes = new byte[buf.getInt(offset)];
+            final ByteBuffer dup = buf.duplicate();
+            dup.position(offset + 4);
+            dup.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            if(entrySet == null) {
+                entrySet = new AbstractSet<Map.Entry<String, String>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, String>> iterator() {
+                        return new Iterator<Map.Entry<String, String>>() {
+                            int i;
+                            @Override
+                            public boolean hasNext() {
+                                return i < size;
+                            }
+                            @Override
+                            public Map.Entry<String, String> next() {
+                                if(i >= size) {
+                                    throw new NoSuchElementException();
+                                }
+                                final int entry = HEADER_SIZE + i++ * 8;
+                                return new SimpleImmutableEntry<>(string(buf.getInt(entry)), string(buf.getInt(entry + 4)));
+                            }
+                        };
+                    }
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+            return entrySet;
+        }
+    }
+
+    private static class MergedMap extends AbstractMap<String, String> {
+
+        private final List<Map<String, String>> maps;
+        private Map<String, String> merged;
+
+        MergedMap(List<Map<String, String>> maps) {
+            this.maps = new ArrayList<>(maps);
+        }
+
+        @Override
+        public String get(Object key) {
+            for(int i = maps.size() - 1; i >= 0; --i) {
+                final String value = maps.get(i).get(key);
+                if(value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            if(merged == null) {
+                final Map<String, String> merged = new HashMap<>();
+                for(Map<String, String> map : maps) {
+                    merged.putAll(map);
+                }
+                this.merged = Collections.unmodifiableMap(merged);
+            }
+            return merged.entrySet();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.galleon.MessageWriter;
+import org.jboss.jandex.IndexWriter;
+
+/**
+ * On-disk cache of the Jandex index jars created for module artifacts annotated with {@code ?jandex}.
+ *
+ * The cached index jars are keyed by the SHA-1 of the artifact's content (and the Jandex version
+ * used to produce them). When the total size of the cache exceeds the configured limit,
+ * the least recently used entries are evicted until the cache is below {@link #EVICTION_TARGET_PERCENT}
+ * of the limit, so that the following misses don't trigger another eviction right away.
+ * The last modified time of an entry is used to track its last use.
+ *
+ * The total size is scanned when the cache is opened and on eviction, in between it is tracked
+ * by adding the sizes of the created entries.
+ *
+ * The cache may be shared by concurrent provisioning processes: entries are created under
+ * temporary names and atomically moved into place once complete.
+ */
+class JandexIndexCache {
+
+    private static final String ENTRY_SUFFIX = ".jar";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /**
+     * Percentage of the maximum size the eviction reduces the cache to.
+     */
+    private static final int EVICTION_TARGET_PERCENT = 90;
+
+    private final Path dir;
+    private final long maxSize;
+    private final MessageWriter log;
+    private final AtomicLong totalSize = new AtomicLong();
+
+    JandexIndexCache(Path dir, long maxSize, MessageWriter log) throws IOException {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of the cache must be a positive number: " + maxSize);
+        }
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.log = log;
+        Files.createDirectories(dir);
+        long size = 0;
+        for (Path entry : listEntries()) {
+            size += size(entry);
+        }
+        totalSize.set(size);
+    }
+
+    /**
+     * Writes the Jandex index jar for the artifact to the target, either copying it from the cache
+     * or creating and caching it.
+     *
+     * @param artifact  artifact to index
+     * @param target  index jar to create
+     * @param executor  executor to index large artifacts with or null
+     * @return  true if the index was copied from the cache, false if it was created
+     * @throws IOException  in case of a failure
+     */
+    boolean createIndex(Path artifact, Path target, ParallelExecutor executor) throws IOException {
+        final Path cached = dir.resolve(hash(artifact) + ENTRY_SUFFIX);
+        if (Files.exists(cached)) {
+            try {
+                Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+                Files.copy(cached, target, StandardCopyOption.REPLACE_EXISTING);
+                log.verbose("Copied cached Jandex index of %s", artifact);
+                return true;
+            } catch (NoSuchFileException e) {
+                // evicted in the meantime
+            }
+        }
+
+        final Path tmp = Files.createTempFile(dir, cached.getFileName().toString(), TMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                JandexIndexer.createIndex(artifact.toFile(), out, log, executor);
+            }
+            Files.copy(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            // the entry may have been created concurrently in the meantime
+            final long replaced = size(cached);
+            final long size = size(tmp);
+            try {
+                Files.move(tmp, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (totalSize.addAndGet(size - replaced) > maxSize) {
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return false;
+    }
+
+    private synchronized void evict() throws IOException {
+        if (totalSize.get() <= maxSize) {
+            // evicted by another thread in the meantime
+            return;
+        }
+        // other processes sharing the cache may have added or evicted entries, so the size is rescanned
+        final List<Path> entries = listEntries();
+        long size = 0;
+        for (Path entry : entries) {
+            size += size(entry);
+        }
+        final long targetSize = maxSize / 100 * EVICTION_TARGET_PERCENT;
+        if (size > maxSize) {
+            Collections.sort(entries, (e1, e2) -> Long.compare(lastModified(e1), lastModified(e2)));
+            for (Path entry : entries) {
+                if (size <= targetSize) {
+                    break;
+                }
+                final long entrySize = size(entry);
+                if (Files.deleteIfExists(entry)) {
+                    size -= entrySize;
+                    log.verbose("Evicted Jandex index %s from the cache", entry.getFileName());
+                }
+            }
+        }
+        totalSize.set(size);
+    }
+
+    private List<Path> listEntries() throws IOException {
+        final List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + ENTRY_SUFFIX)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static long size(Path p) {
+        try {
+            return Files.size(p);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String hash(Path artifact) throws IOException {
+        final String contentHash = Utils.sha1(artifact);
+        final String jandexVersion = IndexWriter.class.getPackage().getImplementationVersion();
+        if (jandexVersion == null) {
+            return contentHash;
+        }
+        return Utils.sha1((jandexVersion + ':' + contentHash).getBytes(StandardCharsets.UTF_8));
+    }
+}
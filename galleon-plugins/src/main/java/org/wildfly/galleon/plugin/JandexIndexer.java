@@ -22,13 +22,21 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.jboss.galleon.MessageWriter;
+import org.jboss.galleon.ProvisioningException;
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
 import org.jboss.jandex.Index;
 import org.jboss.jandex.IndexWriter;
 import org.jboss.jandex.Indexer;
@@ -38,6 +46,11 @@ import org.jboss.jandex.Indexer;
  */
 class JandexIndexer {
 
+    /**
+     * Minimum number of classes in a jar to index them in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 512;
+
     public static void createIndex(File jarFile, OutputStream target, MessageWriter log) throws IOException {
         ZipOutputStream zo;
 
@@ -78,6 +91,124 @@ class JandexIndexer {
         }
     }
 
+    /**
+     * Same as {@link #createIndex(File, OutputStream, MessageWriter)} except that the classes
+     * of large jars are indexed by the executor's workers. Each worker indexes a contiguous
+     * range of the jar's class entries with its own {@link Indexer}. The partial results are then
+     * merged in the order of the jar entries, i.e. in the same order the serial indexer would
+     * record them, before the index is written.
+     *
+     * The written index is byte-identical to the serial one: the writer serializes the known classes
+     * in the iteration order of the class map, which is populated with the same keys in the same order,
+     * and each class with its own annotations, while the annotation instances of each name are appended
+     * class by class in the jar entry order. JandexIndexerTest verifies it.
+     */
+    public static void createIndex(File jarFile, OutputStream target, MessageWriter log, ParallelExecutor executor) throws IOException {
+        if(executor == null || executor.getParallelism() == 1) {
+            createIndex(jarFile, target, log);
+            return;
+        }
+
+        ZipOutputStream zo = null;
+        final JarFile jar = new JarFile(jarFile);
+        try {
+            final List<JarEntry> classEntries = new ArrayList<>();
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(".class")) {
+                    classEntries.add(entry);
+                }
+            }
+            if(classEntries.size() < PARALLEL_THRESHOLD) {
+                safeClose(jar, log);
+                createIndex(jarFile, target, log);
+                return;
+            }
+
+            final ClassInfo[] indexed = new ClassInfo[classEntries.size()];
+            final int chunks = Math.min(executor.getParallelism(), classEntries.size());
+            final int chunkSize = (classEntries.size() + chunks - 1) / chunks;
+            final List<ParallelExecutor.Task> tasks = new ArrayList<>(chunks);
+            for(int start = 0; start < classEntries.size(); start += chunkSize) {
+                final int from = start;
+                final int to = Math.min(start + chunkSize, classEntries.size());
+                tasks.add(() -> {
+                    final Indexer indexer = new Indexer();
+                    for(int i = from; i < to; ++i) {
+                        indexed[i] = indexEntry(indexer, jar, classEntries.get(i), log);
+                    }
+                });
+            }
+            try {
+                executor.execute(tasks);
+            } catch (ProvisioningException e) {
+                throw new IOException("Failed to index " + jarFile, e);
+            }
+
+            zo = new ZipOutputStream(target);
+            zo.putNextEntry(new ZipEntry("META-INF/jandex.idx"));
+            IndexWriter writer = new IndexWriter(zo);
+            writer.write(merge(indexed));
+        } finally {
+            safeClose(zo, log);
+            safeClose(jar, log);
+            safeClose(target, log);
+        }
+    }
+
+    private static ClassInfo indexEntry(Indexer indexer, JarFile jar, JarEntry entry, MessageWriter log) {
+        try {
+            final InputStream stream = jar.getInputStream(entry);
+            try {
+                return indexer.index(stream);
+            } finally {
+                safeClose(stream, log);
+            }
+        } catch (Exception e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            log.error("Could not index " + entry.getName() + ": " + message, e);
+            return null;
+        }
+    }
+
+    private static Index merge(ClassInfo[] indexed) {
+        final Map<DotName, List<AnnotationInstance>> annotations = new HashMap<>();
+        final Map<DotName, List<ClassInfo>> subclasses = new HashMap<>();
+        final Map<DotName, List<ClassInfo>> implementors = new HashMap<>();
+        final Map<DotName, ClassInfo> classes = new HashMap<>();
+        for(ClassInfo classInfo : indexed) {
+            if(classInfo == null) {
+                continue;
+            }
+            for(Map.Entry<DotName, List<AnnotationInstance>> entry : classInfo.annotations().entrySet()) {
+                List<AnnotationInstance> list = annotations.get(entry.getKey());
+                if(list == null) {
+                    list = new ArrayList<>();
+                    annotations.put(entry.getKey(), list);
+                }
+                list.addAll(entry.getValue());
+            }
+            final DotName superName = classInfo.superName();
+            if(superName != null) {
+                addClass(subclasses, superName, classInfo);
+            }
+            for(DotName interfaceName : classInfo.interfaceNames()) {
+                addClass(implementors, interfaceName, classInfo);
+            }
+            classes.put(classInfo.name(), classInfo);
+        }
+        return Index.create(annotations, subclasses, implementors, classes);
+    }
+
+    private static void addClass(Map<DotName, List<ClassInfo>> map, DotName name, ClassInfo classInfo) {
+        List<ClassInfo> list = map.get(name);
+        if(list == null) {
+            list = new ArrayList<>();
+            map.put(name, list);
+        }
+        list.add(classInfo);
+    }
 
     private static void safeClose(Closeable closeable, MessageWriter log) {
         if (closeable != null) {
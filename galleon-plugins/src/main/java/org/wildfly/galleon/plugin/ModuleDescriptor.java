@@ -0,0 +1,511 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jboss.galleon.Errors;
+import org.jboss.galleon.util.CollectionUtils;
+
+/**
+ * What the provisioning and the feature-pack build need to know about a JBoss module descriptor (module.xml),
+ * i.e. a module or a module alias.
+ *
+ * Only the first properties, dependencies and resources elements of a module are taken into account
+ * and only their children in the namespace of the module, which is how the module templates are processed
+ * during provisioning.
+ */
+public class ModuleDescriptor {
+
+    private static final String MAIN = "main";
+
+    private static final String ARTIFACT = "artifact";
+    private static final String DEPENDENCIES = "dependencies";
+    private static final String MODULE_ALIAS = "module-alias";
+    private static final String NAME = "name";
+    private static final String OPTIONAL = "optional";
+    private static final String PATH = "path";
+    private static final String PROPERTIES = "properties";
+    private static final String PROPERTY = "property";
+    private static final String RESOURCE_ROOT = "resource-root";
+    private static final String RESOURCES = "resources";
+    private static final String SLOT = "slot";
+    private static final String TARGET_NAME = "target-name";
+    private static final String TARGET_SLOT = "target-slot";
+    private static final String VALUE = "value";
+    private static final String VERSION = "version";
+
+    /**
+     * pattern for artifacts in the JBoss Modules format
+     */
+    private static final Pattern JBOSS_MODULES_VALID_PATTERN = Pattern.compile("^([-_a-zA-Z0-9.]+):([-_a-zA-Z0-9.]+):([-_a-zA-Z0-9.]+)(?::([-_a-zA-Z0-9.]+))?$");
+
+    /**
+     * An artifact of the module resources.
+     */
+    public static class Artifact {
+
+        private final String name;
+        private final String coords;
+        private final String options;
+
+        Artifact(String name) {
+            this.name = name;
+            if (ModuleDescriptor.isExpression(name)) {
+                final String expr = name.substring(2, name.length() - 1);
+                final int optionsIndex = expr.indexOf('?');
+                if (optionsIndex >= 0) {
+                    coords = expr.substring(0, optionsIndex);
+                    options = expr.substring(optionsIndex + 1);
+                } else {
+                    coords = expr;
+                    options = null;
+                }
+            } else {
+                coords = name;
+                options = null;
+            }
+        }
+
+        /**
+         * @return  the value of the name attribute as it appears in the descriptor
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return  whether the name is an expression of the form ${coords?options}
+         */
+        public boolean isExpression() {
+            return ModuleDescriptor.isExpression(name);
+        }
+
+        /**
+         * @return  the name of the artifact in the artifact versions, if the name is an expression,
+         *          otherwise the artifact coordinates
+         */
+        public String getCoords() {
+            return coords;
+        }
+
+        /**
+         * Converts the coordinates of an artifact hard coded in the JBoss Modules format G:A:V[:Q]
+         * to the format G:A:[P[:Q[:V]]] used elsewhere.
+         *
+         * @return  the converted coordinates or null if the name is an expression
+         * @throws IllegalArgumentException  if the name is neither an expression nor in the JBoss Modules format
+         */
+        public String getHardCodedCoords() {
+            if (isExpression()) {
+                return null;
+            }
+            final Matcher matcher = JBOSS_MODULES_VALID_PATTERN.matcher(name);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Hard coded artifact " + name);
+            }
+            final StringBuilder sb = new StringBuilder();
+            sb.append(matcher.group(1)) //group
+                .append(':')
+                .append(matcher.group(2)) //artifact
+                .append("::"); //packaging is always null (jar)
+            if (matcher.group(4) != null) {
+                //there is a classifier present
+                sb.append(matcher.group(4));
+            }
+            sb.append(':').append(matcher.group(3));
+            return sb.toString();
+        }
+
+        /**
+         * @return  the options of the expression or null if there are none
+         */
+        public String getOptions() {
+            return options;
+        }
+
+        /**
+         * @return  whether a Jandex index should be generated for the artifact
+         */
+        public boolean isJandex() {
+            return options != null && options.contains("jandex");
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * A module dependency, for an alias it is the target module.
+     */
+    public static class Dependency {
+
+        private final String name;
+        private final String slot;
+        private final boolean optional;
+        private final Map<String, String> props;
+
+        Dependency(String name, String slot, boolean optional, Map<String, String> props) {
+            this.name = name;
+            this.slot = slot;
+            this.optional = optional;
+            this.props = props;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSlot() {
+            return slot;
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+
+        public Map<String, String> getProperties() {
+            return props;
+        }
+
+        public String getProperty(String name) {
+            return props.get(name);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + name + ':' + slot + (optional ? ",optional=true" : "") + "]";
+        }
+    }
+
+    private static volatile XMLInputFactory xmlInputFactory;
+
+    private static XMLInputFactory getXmlInputFactory() {
+        XMLInputFactory factory = xmlInputFactory;
+        if(factory == null) {
+            factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            xmlInputFactory = factory;
+        }
+        return factory;
+    }
+
+    /**
+     * Parses a module descriptor encoded in UTF-8.
+     *
+     * @param moduleXml  module descriptor
+     * @return  parsed descriptor
+     * @throws IOException  in case the descriptor could not be read or parsed
+     */
+    public static ModuleDescriptor parse(Path moduleXml) throws IOException {
+        return parse(moduleXml, WfConstants.UTF8);
+    }
+
+    /**
+     * Parses a module descriptor. If the root element is neither module nor module-alias,
+     * the returned descriptor is neither a module nor an alias and is otherwise empty.
+     *
+     * @param moduleXml  module descriptor
+     * @param encoding  encoding of the descriptor
+     * @return  parsed descriptor
+     * @throws IOException  in case the descriptor could not be read or parsed
+     */
+    public static ModuleDescriptor parse(Path moduleXml, String encoding) throws IOException {
+        try (BufferedReader input = Files.newBufferedReader(moduleXml, Charset.forName(encoding))) {
+            final XMLStreamReader reader = getXmlInputFactory().createXMLStreamReader(input);
+            try {
+                final ModuleDescriptor descriptor = new ModuleDescriptor();
+                if (nextElement(reader)) {
+                    descriptor.parseRoot(reader);
+                }
+                return descriptor;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(Errors.parseXml(moduleXml), e);
+        }
+    }
+
+    private boolean module;
+    private boolean alias;
+    private String name;
+    private String slot;
+    private String version;
+    private Map<String, String> props = Collections.emptyMap();
+    private List<Dependency> dependencies = Collections.emptyList();
+    private List<String> resourceRoots = Collections.emptyList();
+    private List<Artifact> artifacts = Collections.emptyList();
+
+    private ModuleDescriptor() {
+    }
+
+    /**
+     * @return  whether the root element is module
+     */
+    public boolean isModule() {
+        return module;
+    }
+
+    /**
+     * @return  whether the root element is module-alias
+     */
+    public boolean isAlias() {
+        return alias;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSlot() {
+        return slot;
+    }
+
+    /**
+     * @return  the value of the version attribute as it appears in the descriptor or null
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return  the artifact name of the version expression of the form ${name?options}
+     *          or null if the version is not an expression
+     */
+    public String getVersionArtifactName() {
+        return getVersionArtifactName(version);
+    }
+
+    static String getVersionArtifactName(String version) {
+        if (version == null || !isExpression(version)) {
+            return null;
+        }
+        final String expr = version.substring(2, version.length() - 1);
+        final int optionsIndex = expr.indexOf('?');
+        return optionsIndex > 0 ? expr.substring(0, optionsIndex) : expr;
+    }
+
+    public Map<String, String> getProperties() {
+        return props;
+    }
+
+    public List<Dependency> getDependencies() {
+        return dependencies;
+    }
+
+    public List<String> getResourceRoots() {
+        return resourceRoots;
+    }
+
+    public List<Artifact> getArtifacts() {
+        return artifacts;
+    }
+
+    private void parseRoot(XMLStreamReader reader) throws XMLStreamException {
+        final String localName = reader.getLocalName();
+        if (WfConstants.MODULE.equals(localName)) {
+            module = true;
+        } else if (MODULE_ALIAS.equals(localName)) {
+            alias = true;
+        } else {
+            return;
+        }
+        name = reader.getAttributeValue(null, NAME);
+        slot = getAttributeValue(reader, SLOT, MAIN);
+        if (alias) {
+            dependencies = Collections.singletonList(new Dependency(getAttributeValue(reader, TARGET_NAME, ""),
+                    getAttributeValue(reader, TARGET_SLOT, MAIN), false, Collections.emptyMap()));
+            return;
+        }
+        version = reader.getAttributeValue(null, VERSION);
+
+        final String ns = reader.getNamespaceURI();
+        boolean propsParsed = false;
+        boolean depsParsed = false;
+        boolean resourcesParsed = false;
+        while (nextElement(reader)) {
+            if (!isInNamespace(reader, ns)) {
+                skip(reader);
+                continue;
+            }
+            switch (reader.getLocalName()) {
+                case PROPERTIES:
+                    if (!propsParsed) {
+                        props = parseProperties(reader, ns);
+                        propsParsed = true;
+                        continue;
+                    }
+                    break;
+                case DEPENDENCIES:
+                    if (!depsParsed) {
+                        parseDependencies(reader, ns);
+                        depsParsed = true;
+                        continue;
+                    }
+                    break;
+                case RESOURCES:
+                    if (!resourcesParsed) {
+                        parseResources(reader, ns);
+                        resourcesParsed = true;
+                        continue;
+                    }
+                    break;
+                default:
+            }
+            skip(reader);
+        }
+        dependencies = CollectionUtils.unmodifiable(dependencies);
+        resourceRoots = CollectionUtils.unmodifiable(resourceRoots);
+        artifacts = CollectionUtils.unmodifiable(artifacts);
+    }
+
+    private void parseDependencies(XMLStreamReader reader, String ns) throws XMLStreamException {
+        while (nextElement(reader)) {
+            if (!isInNamespace(reader, ns) || !WfConstants.MODULE.equals(reader.getLocalName())) {
+                skip(reader);
+                continue;
+            }
+            String depName = getAttributeValue(reader, NAME, "");
+            String depSlot;
+            final int colon = depName.indexOf(':');
+            if (colon < 0) {
+                depSlot = getAttributeValue(reader, SLOT, MAIN);
+            } else {
+                depSlot = depName.substring(colon + 1);
+                depName = depName.substring(0, colon);
+            }
+            final boolean optional = Boolean.parseBoolean(getAttributeValue(reader, OPTIONAL, "false"));
+            Map<String, String> depProps = null;
+            while (nextElement(reader)) {
+                if (depProps == null && isInNamespace(reader, ns) && PROPERTIES.equals(reader.getLocalName())) {
+                    depProps = parseProperties(reader, ns);
+                } else {
+                    skip(reader);
+                }
+            }
+            dependencies = CollectionUtils.add(dependencies, new Dependency(depName, depSlot, optional,
+                    depProps == null ? Collections.emptyMap() : depProps));
+        }
+    }
+
+    private void parseResources(XMLStreamReader reader, String ns) throws XMLStreamException {
+        while (nextElement(reader)) {
+            if (isInNamespace(reader, ns)) {
+                final String localName = reader.getLocalName();
+                if (ARTIFACT.equals(localName)) {
+                    final String artifactName = reader.getAttributeValue(null, NAME);
+                    if (artifactName != null) {
+                        artifacts = CollectionUtils.add(artifacts, new Artifact(artifactName));
+                    }
+                } else if (RESOURCE_ROOT.equals(localName)) {
+                    final String path = reader.getAttributeValue(null, PATH);
+                    if (path != null) {
+                        resourceRoots = CollectionUtils.add(resourceRoots, path);
+                    }
+                }
+            }
+            skip(reader);
+        }
+    }
+
+    private static Map<String, String> parseProperties(XMLStreamReader reader, String ns) throws XMLStreamException {
+        Map<String, String> props = Collections.emptyMap();
+        while (nextElement(reader)) {
+            if (isInNamespace(reader, ns) && PROPERTY.equals(reader.getLocalName())) {
+                final String propName = reader.getAttributeValue(null, NAME);
+                if (propName == null) {
+                    throw new XMLStreamException("Element property is missing required attribute name", reader.getLocation());
+                }
+                final String propValue = reader.getAttributeValue(null, VALUE);
+                if (propValue == null) {
+                    throw new XMLStreamException("Element property is missing required attribute value", reader.getLocation());
+                }
+                props = CollectionUtils.put(props, propName, propValue);
+            }
+            skip(reader);
+        }
+        return CollectionUtils.unmodifiable(props);
+    }
+
+    /**
+     * Moves to the next child element of the current element.
+     *
+     * @return  true if the reader is positioned at the start of the child element,
+     *          false if the reader reached the end of the current element
+     */
+    private static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    return true;
+                case XMLStreamConstants.END_ELEMENT:
+                    return false;
+                default:
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the end of the current element.
+     */
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    ++depth;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    --depth;
+                    break;
+                default:
+            }
+        }
+    }
+
+    private static boolean isInNamespace(XMLStreamReader reader, String ns) {
+        final String elementNs = reader.getNamespaceURI();
+        return ns == null || ns.isEmpty() ? elementNs == null || elementNs.isEmpty() : ns.equals(elementNs);
+    }
+
+    private static String getAttributeValue(XMLStreamReader reader, String name, String defaultValue) {
+        final String value = reader.getAttributeValue(null, name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static boolean isExpression(String value) {
+        return value.startsWith("${") && value.endsWith("}");
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fingerprints of the JBoss modules generated from the module templates.
+ *
+ * For each module.xml the manifest records the hash of its inputs (the template, the resolved
+ * artifact coordinates and the content of the artifacts) and the files generated for the module
+ * with the hashes of their content. The manifest is stored in the provisioned state of the installation
+ * so that the next provisioning could reuse the modules whose inputs have not changed.
+ *
+ * The size and the last modified time of every hashed file are recorded next to its hash, so that
+ * the next provisioning has to hash only the installed files and the artifacts that have changed since.
+ */
+class ModuleFingerprints {
+
+    static final String MANIFEST = "wildfly-modules.txt";
+
+    private static final String HEADER = "# WildFly module fingerprints 2";
+    private static final String MODULE = "M";
+    private static final String FILE = "F";
+    private static final String ARTIFACT = "A";
+
+    static class Module {
+
+        final String inputsHash;
+        final Map<String, FileHash> files;
+
+        Module(String inputsHash, Map<String, FileHash> files) {
+            this.inputsHash = inputsHash;
+            this.files = files;
+        }
+    }
+
+    /**
+     * Hash of the content of a file with the size and the last modified time the file had when it was hashed.
+     */
+    static class FileHash {
+
+        static FileHash of(Path file, String hash) throws IOException {
+            final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileHash(hash, attrs.size(), attrs.lastModifiedTime().toMillis());
+        }
+
+        final String hash;
+        final long size;
+        final long lastModified;
+
+        FileHash(String hash, long size, long lastModified) {
+            this.hash = hash;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Checks whether the file still has the size and the last modified time it had when it was hashed.
+         */
+        boolean isUnchanged(Path file) throws IOException {
+            final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return attrs.size() == size && attrs.lastModifiedTime().toMillis() == lastModified;
+        }
+
+        private String format() {
+            return hash + '\t' + size + '\t' + lastModified;
+        }
+
+        private static FileHash parse(String[] parts) {
+            return new FileHash(parts[2], Long.parseLong(parts[3]), Long.parseLong(parts[4]));
+        }
+    }
+
+    /**
+     * Loads the manifest. If the file does not exist or its format is not recognized,
+     * the returned manifest will be empty.
+     */
+    static ModuleFingerprints load(Path file) throws IOException {
+        final ModuleFingerprints fingerprints = new ModuleFingerprints();
+        if(!Files.exists(file)) {
+            return fingerprints;
+        }
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if(!HEADER.equals(reader.readLine())) {
+                return fingerprints;
+            }
+            Map<String, FileHash> files = null;
+            String line = reader.readLine();
+            while(line != null) {
+                final String[] parts = line.split("\t");
+                try {
+                    if(MODULE.equals(parts[0]) && parts.length == 3) {
+                        files = new LinkedHashMap<>();
+                        fingerprints.modules.put(parts[1], new Module(parts[2], Collections.unmodifiableMap(files)));
+                    } else if(FILE.equals(parts[0]) && parts.length == 5 && files != null) {
+                        files.put(parts[1], FileHash.parse(parts));
+                    } else if(ARTIFACT.equals(parts[0]) && parts.length == 5) {
+                        fingerprints.artifacts.put(parts[1], FileHash.parse(parts));
+                    } else {
+                        throw new IOException("Unexpected line in " + file + ": " + line);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Unexpected line in " + file + ": " + line, e);
+                }
+                line = reader.readLine();
+            }
+        }
+        return fingerprints;
+    }
+
+    private final Map<String, Module> modules = new ConcurrentHashMap<>();
+    private final Map<String, FileHash> artifacts = new ConcurrentHashMap<>();
+
+    Module get(String moduleXml) {
+        return modules.get(moduleXml);
+    }
+
+    void put(String moduleXml, Module module) {
+        modules.put(moduleXml, module);
+    }
+
+    /**
+     * Returns the recorded hash of the artifact, unless the artifact has changed since it was hashed.
+     *
+     * @param artifact  artifact file
+     * @return  recorded hash or null
+     */
+    FileHash getArtifact(Path artifact) throws IOException {
+        final FileHash hash = artifacts.get(artifact.toAbsolutePath().toString());
+        return hash == null || !Files.exists(artifact) || !hash.isUnchanged(artifact) ? null : hash;
+    }
+
+    void putArtifact(Path artifact, FileHash hash) {
+        artifacts.put(artifact.toAbsolutePath().toString(), hash);
+    }
+
+    void store(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for(Map.Entry<String, Module> entry : new TreeMap<>(modules).entrySet()) {
+                final Module module = entry.getValue();
+                writer.write(MODULE + '\t' + entry.getKey() + '\t' + module.inputsHash);
+                writer.newLine();
+                for(Map.Entry<String, FileHash> moduleFile : module.files.entrySet()) {
+                    writer.write(FILE + '\t' + moduleFile.getKey() + '\t' + moduleFile.getValue().format());
+                    writer.newLine();
+                }
+            }
+            for(Map.Entry<String, FileHash> entry : new TreeMap<>(artifacts).entrySet()) {
+                writer.write(ARTIFACT + '\t' + entry.getKey() + '\t' + entry.getValue().format());
+                writer.newLine();
+            }
+        }
+    }
+}
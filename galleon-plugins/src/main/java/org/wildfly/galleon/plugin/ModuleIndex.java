@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jboss.galleon.util.CollectionUtils;
+
+/**
+ * Index of the JBoss module packages of a feature-pack, generated when the feature-pack is built
+ * and stored as {@link WfConstants#MODULE_INDEX} among the feature-pack resources, so that the information
+ * about the modules could be provided without looking for and parsing their descriptors.
+ *
+ * For each package the index records the path of the module.xml relative to the module directory
+ * of the package, the version expression and the names of the artifacts as they appear in the descriptor.
+ */
+public class ModuleIndex {
+
+    private static final String HEADER = "# WildFly module index 1";
+    private static final String PACKAGE = "P";
+    private static final String ARTIFACT = "A";
+
+    /**
+     * The module of a package.
+     */
+    public static class Module {
+
+        private final String moduleXml;
+        private final String version;
+        private List<ModuleDescriptor.Artifact> artifacts = Collections.emptyList();
+
+        Module(String moduleXml, String version) {
+            this.moduleXml = moduleXml;
+            this.version = version;
+        }
+
+        /**
+         * @return  path of the module.xml relative to the module directory of the package
+         */
+        public String getModuleXml() {
+            return moduleXml;
+        }
+
+        /**
+         * @return  the value of the version attribute as it appears in the descriptor or null
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * @return  the artifact name of the version expression or null if the version is not an expression
+         */
+        public String getVersionArtifactName() {
+            return ModuleDescriptor.getVersionArtifactName(version);
+        }
+
+        public List<ModuleDescriptor.Artifact> getArtifacts() {
+            return artifacts;
+        }
+    }
+
+    /**
+     * Loads the index from the feature-pack resources directory.
+     *
+     * @param wfResDir  feature-pack resources directory
+     * @return  the index or null if the feature-pack does not include it or its format is not recognized
+     * @throws IOException  in case of a failure
+     */
+    public static ModuleIndex load(Path wfResDir) throws IOException {
+        final Path file = wfResDir.resolve(WfConstants.MODULE_INDEX);
+        if(!Files.exists(file)) {
+            return null;
+        }
+        final ModuleIndex index = new ModuleIndex();
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if(!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            Module module = null;
+            String line = reader.readLine();
+            while(line != null) {
+                final String[] parts = line.split("\t", -1);
+                if(PACKAGE.equals(parts[0]) && parts.length == 4) {
+                    module = new Module(parts[2], parts[3].isEmpty() ? null : parts[3]);
+                    index.modules.put(parts[1], module);
+                } else if(ARTIFACT.equals(parts[0]) && parts.length == 2 && module != null) {
+                    module.artifacts = CollectionUtils.add(module.artifacts, new ModuleDescriptor.Artifact(parts[1]));
+                } else {
+                    throw new IOException("Unexpected line in " + file + ": " + line);
+                }
+                line = reader.readLine();
+            }
+        }
+        return index;
+    }
+
+    private final Map<String, Module> modules = new TreeMap<>();
+
+    /**
+     * Adds the module of a package to the index.
+     *
+     * @param packageName  package name
+     * @param moduleXml  path of the module.xml relative to the module directory of the package
+     * @param descriptor  the parsed module.xml
+     */
+    public void add(String packageName, String moduleXml, ModuleDescriptor descriptor) {
+        final Module module = new Module(moduleXml.replace('\\', '/'), descriptor.getVersion());
+        module.artifacts = descriptor.getArtifacts();
+        modules.put(packageName, module);
+    }
+
+    /**
+     * @param packageName  package name
+     * @return  the module of the package or null if the package is not a module package
+     */
+    public Module get(String packageName) {
+        return modules.get(packageName);
+    }
+
+    public boolean isEmpty() {
+        return modules.isEmpty();
+    }
+
+    /**
+     * Writes the index to the feature-pack resources directory.
+     *
+     * @param wfResDir  feature-pack resources directory
+     * @throws IOException  in case of a failure
+     */
+    public void store(Path wfResDir) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(wfResDir.resolve(WfConstants.MODULE_INDEX), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for(Map.Entry<String, Module> entry : modules.entrySet()) {
+                final Module module = entry.getValue();
+                writer.write(PACKAGE + '\t' + entry.getKey() + '\t' + module.moduleXml + '\t' + (module.version == null ? "" : module.version));
+                writer.newLine();
+                for(ModuleDescriptor.Artifact artifact : module.artifacts) {
+                    writer.write(ARTIFACT + '\t' + artifact.getName());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+}
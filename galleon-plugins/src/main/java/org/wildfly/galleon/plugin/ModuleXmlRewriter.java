@@ -0,0 +1,472 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jboss.galleon.ProvisioningException;
+
+/**
+ * Rewrites module.xml templates in a single pass over the StAX events of the template.
+ *
+ * The version of the module and the artifacts of its resources are replaced with the values
+ * provided by the {@link Handler}, everything else is copied. The output is the same as
+ * the one of the XOM {@code Serializer} for the document built from the template
+ * by the XOM {@code Builder}, which was used to process the templates before:
+ * the XML declaration is rewritten and followed by CRLF, the whitespace outside of the root element
+ * is dropped and a CRLF is written after each comment, processing instruction and document type declaration
+ * outside of the root element and after the root element, the elements without content are written
+ * as empty-element tags, the attributes precede the namespace declarations and the redundant namespace
+ * declarations are dropped, the text is escaped as XOM escapes it.
+ */
+class ModuleXmlRewriter {
+
+    /**
+     * Provides the replacements for the values of the template.
+     */
+    interface Handler {
+
+        /**
+         * Resolves the version of the module.
+         *
+         * @param version  value of the version attribute of the root element
+         * @return  the version to replace the value with or null to keep the value
+         */
+        String resolveVersion(String version) throws ProvisioningException, IOException;
+
+        /**
+         * Resolves an artifact of the module resources.
+         *
+         * @param name  value of the name attribute of the artifact element
+         * @return  the replacement of the artifact element or null to keep the element as is
+         */
+        Artifact resolveArtifact(String name) throws ProvisioningException, IOException;
+    }
+
+    /**
+     * Replacement of an artifact element.
+     */
+    static class Artifact {
+
+        /**
+         * The artifact element with the name attribute set to the coordinates.
+         */
+        static Artifact coords(String coords) {
+            return new Artifact(ARTIFACT, NAME, coords);
+        }
+
+        /**
+         * The resource-root element with the path attribute instead of the artifact element.
+         */
+        static Artifact resourceRoot(String path) {
+            return new Artifact(RESOURCE_ROOT, PATH, path);
+        }
+
+        private final String element;
+        private final String attribute;
+        private final String value;
+
+        private Artifact(String element, String attribute, String value) {
+            this.element = element;
+            this.attribute = attribute;
+            this.value = value;
+        }
+    }
+
+    private static final String LINE_SEPARATOR = "\r\n";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    private static final String MODULE = "module";
+    private static final String MODULE_ALIAS = "module-alias";
+    private static final String RESOURCES = "resources";
+    private static final String ARTIFACT = "artifact";
+    private static final String RESOURCE_ROOT = "resource-root";
+    private static final String NAME = "name";
+    private static final String PATH = "path";
+    private static final String VERSION = "version";
+
+    private static volatile XMLInputFactory xmlInputFactory;
+
+    private static XMLInputFactory getXmlInputFactory() {
+        XMLInputFactory factory = xmlInputFactory;
+        if(factory == null) {
+            factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            xmlInputFactory = factory;
+        }
+        return factory;
+    }
+
+    /**
+     * Writes the template with the values replaced to the target.
+     *
+     * @param template  the module.xml template
+     * @param target  the file to write
+     * @param handler  the provider of the replacements
+     * @return  false if the root element of the template is neither module nor module-alias,
+     *          in which case the content of the target is undefined, otherwise true
+     */
+    static boolean rewrite(Path template, Path target, Handler handler) throws ProvisioningException, IOException {
+        try (BufferedReader reader = Files.newBufferedReader(template, StandardCharsets.UTF_8);
+                BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            return new ModuleXmlRewriter(handler, writer).process(reader);
+        }
+    }
+
+    private final Handler handler;
+    private final Writer writer;
+
+    // the qualified names of the elements to write the end tags for
+    private final Deque<String> elements = new ArrayDeque<>();
+    // the namespaces in scope of the open elements
+    private final Deque<Map<String, String>> namespaces = new ArrayDeque<>();
+    private String rootNamespace;
+    private boolean resourcesFound;
+    private boolean inResources;
+    private boolean startTagOpen;
+
+    private ModuleXmlRewriter(Handler handler, Writer writer) {
+        this.handler = handler;
+        this.writer = writer;
+        final Map<String, String> documentScope = new HashMap<>(2);
+        documentScope.put(XMLConstants.DEFAULT_NS_PREFIX, XMLConstants.NULL_NS_URI);
+        documentScope.put(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI);
+        namespaces.push(documentScope);
+    }
+
+    private boolean process(BufferedReader input) throws ProvisioningException, IOException {
+        final XMLStreamReader reader;
+        try {
+            reader = getXmlInputFactory().createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse document", e);
+        }
+        try {
+            write(XML_DECLARATION);
+            write(LINE_SEPARATOR);
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (!startElement(reader)) {
+                            return false;
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        breakLineAtTopLevel();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        // the document may contain only the elements, the comments and the processing instructions
+                        if (!elements.isEmpty() && reader.getTextLength() > 0) {
+                            closeStartTag();
+                            writeText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        closeStartTag();
+                        write("<!--");
+                        write(reader.getText());
+                        write("-->");
+                        breakLineAtTopLevel();
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        closeStartTag();
+                        write("<?");
+                        write(reader.getPITarget());
+                        final String data = reader.getPIData();
+                        if (data != null && !data.isEmpty()) {
+                            write(" ");
+                            write(data);
+                        }
+                        write("?>");
+                        breakLineAtTopLevel();
+                        break;
+                    case XMLStreamConstants.DTD:
+                        // not expected in the module templates, copied as is
+                        write(reader.getText());
+                        breakLineAtTopLevel();
+                        break;
+                    default:
+                }
+            }
+            return true;
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse document", e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+            }
+        }
+    }
+
+    private boolean startElement(XMLStreamReader reader) throws ProvisioningException, IOException {
+        closeStartTag();
+        final int depth = elements.size() + 1;
+        final String prefix = nonNull(reader.getPrefix());
+        final String namespace = nonNull(reader.getNamespaceURI());
+        final String localName = reader.getLocalName();
+
+        int replacedAttribute = -1;
+        String replacedName = null;
+        String replacedValue = null;
+        String element = localName;
+        if (depth == 1) {
+            if (!MODULE.equals(localName) && !MODULE_ALIAS.equals(localName)) {
+                return false;
+            }
+            rootNamespace = namespace;
+            replacedAttribute = indexOfAttribute(reader, VERSION);
+            if (replacedAttribute >= 0) {
+                replacedName = VERSION;
+                replacedValue = handler.resolveVersion(reader.getAttributeValue(replacedAttribute));
+            }
+        } else if (depth == 2) {
+            // only the first resources element is processed
+            inResources = !resourcesFound && RESOURCES.equals(localName) && namespace.equals(rootNamespace);
+            resourcesFound |= inResources;
+        } else if (depth == 3 && inResources && ARTIFACT.equals(localName) && namespace.equals(rootNamespace)) {
+            replacedAttribute = indexOfAttribute(reader, NAME);
+            if (replacedAttribute >= 0) {
+                final Artifact artifact = handler.resolveArtifact(reader.getAttributeValue(replacedAttribute));
+                if (artifact != null) {
+                    element = artifact.element;
+                    replacedName = artifact.attribute;
+                    replacedValue = artifact.value;
+                }
+            }
+        }
+
+        final Map<String, String> parentScope = namespaces.peek();
+        Map<String, String> scope = parentScope;
+        final int namespaceCount = reader.getNamespaceCount();
+        if (namespaceCount > 0) {
+            scope = new HashMap<>(parentScope);
+            for (int i = 0; i < namespaceCount; ++i) {
+                scope.put(nonNull(reader.getNamespacePrefix(i)), nonNull(reader.getNamespaceURI(i)));
+            }
+        }
+        if (!namespace.equals(scope.get(prefix))) {
+            if (scope == parentScope) {
+                scope = new HashMap<>(parentScope);
+            }
+            scope.put(prefix, namespace);
+        }
+        namespaces.push(scope);
+
+        final String qName = qName(prefix, element);
+        elements.push(qName);
+        write("<");
+        write(qName);
+        final int attributeCount = reader.getAttributeCount();
+        for (int i = 0; i < attributeCount; ++i) {
+            write(" ");
+            final String attrPrefix = nonNull(reader.getAttributePrefix(i));
+            if (i == replacedAttribute && replacedName != null) {
+                write(qName(attrPrefix, replacedName));
+                writeAttributeValue(replacedValue == null ? reader.getAttributeValue(i) : replacedValue);
+            } else {
+                write(qName(attrPrefix, reader.getAttributeLocalName(i)));
+                writeAttributeValue(reader.getAttributeValue(i));
+            }
+        }
+
+        // the namespace of the element, then the declared namespaces, then the namespaces of the attributes
+        writeNamespace(prefix, scope, parentScope, depth);
+        for (int i = 0; i < namespaceCount; ++i) {
+            final String nsPrefix = nonNull(reader.getNamespacePrefix(i));
+            if (!nsPrefix.equals(prefix)) {
+                writeNamespace(nsPrefix, scope, parentScope, depth);
+            }
+        }
+        for (int i = 0; i < attributeCount; ++i) {
+            final String attrPrefix = nonNull(reader.getAttributePrefix(i));
+            if (!attrPrefix.isEmpty() && !attrPrefix.equals(prefix) && !isDeclared(reader, attrPrefix, namespaceCount)) {
+                boolean written = false;
+                for (int j = 0; j < i; ++j) {
+                    if (attrPrefix.equals(reader.getAttributePrefix(j))) {
+                        written = true;
+                        break;
+                    }
+                }
+                if (!written) {
+                    writeNamespace(attrPrefix, scope, parentScope, depth);
+                }
+            }
+        }
+        startTagOpen = true;
+        return true;
+    }
+
+    private void endElement() throws IOException {
+        final String qName = elements.pop();
+        namespaces.pop();
+        if (startTagOpen) {
+            write("/>");
+            startTagOpen = false;
+        } else {
+            write("</");
+            write(qName);
+            write(">");
+        }
+    }
+
+    /**
+     * The XOM serializer writes a line separator after each child of the document.
+     */
+    private void breakLineAtTopLevel() throws IOException {
+        if (elements.isEmpty()) {
+            write(LINE_SEPARATOR);
+        }
+    }
+
+    private void closeStartTag() throws IOException {
+        if (startTagOpen) {
+            write(">");
+            startTagOpen = false;
+        }
+    }
+
+    private void writeNamespace(String prefix, Map<String, String> scope, Map<String, String> parentScope, int depth) throws IOException {
+        if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+            return;
+        }
+        final String uri = scope.get(prefix);
+        if (uri == null || depth > 1 && uri.equals(parentScope.get(prefix)) || depth == 1 && uri.isEmpty()) {
+            return;
+        }
+        write(" ");
+        write(prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ':' + prefix);
+        writeAttributeValue(uri);
+    }
+
+    private void writeAttributeValue(String value) throws IOException {
+        write("=\"");
+        int start = 0;
+        for (int i = 0; i < value.length(); ++i) {
+            final String escaped;
+            switch (value.charAt(i)) {
+                case '&':
+                    escaped = "&amp;";
+                    break;
+                case '<':
+                    escaped = "&lt;";
+                    break;
+                case '>':
+                    escaped = "&gt;";
+                    break;
+                case '"':
+                    escaped = "&quot;";
+                    break;
+                case '\t':
+                    escaped = "&#x09;";
+                    break;
+                case '\n':
+                    escaped = "&#x0A;";
+                    break;
+                case '\r':
+                    escaped = "&#x0D;";
+                    break;
+                default:
+                    continue;
+            }
+            writer.write(value, start, i - start);
+            writer.write(escaped);
+            start = i + 1;
+        }
+        writer.write(value, start, value.length() - start);
+        write("\"");
+    }
+
+    private void writeText(char[] text, int offset, int length) throws IOException {
+        int start = offset;
+        final int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            final String escaped;
+            switch (text[i]) {
+                case '&':
+                    escaped = "&amp;";
+                    break;
+                case '<':
+                    escaped = "&lt;";
+                    break;
+                case '>':
+                    escaped = "&gt;";
+                    break;
+                case '\r':
+                    escaped = "&#x0D;";
+                    break;
+                default:
+                    continue;
+            }
+            writer.write(text, start, i - start);
+            writer.write(escaped);
+            start = i + 1;
+        }
+        writer.write(text, start, end - start);
+    }
+
+    private void write(String markup) throws IOException {
+        writer.write(markup);
+    }
+
+    private static boolean isDeclared(XMLStreamReader reader, String prefix, int count) {
+        for (int i = 0; i < count; ++i) {
+            if (prefix.equals(nonNull(reader.getNamespacePrefix(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOfAttribute(XMLStreamReader reader, String localName) {
+        for (int i = 0; i < reader.getAttributeCount(); ++i) {
+            if (localName.equals(reader.getAttributeLocalName(i)) && nonNull(reader.getAttributeNamespace(i)).isEmpty()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String qName(String prefix, String localName) {
+        return prefix.isEmpty() ? localName : prefix + ':' + localName;
+    }
+
+    private static String nonNull(String str) {
+        return str == null ? "" : str;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.galleon.ProvisioningException;
+
+/**
+ * Bounded pool of worker threads used to run independent provisioning steps concurrently.
+ *
+ * The thread calling {@link #execute(List)} takes part in the execution: before waiting
+ * for a task it runs it itself if none of the workers has picked it up yet. This makes
+ * it safe for a task to submit and wait for nested tasks (e.g. a module being processed
+ * by a worker indexing its artifacts in parallel) without starving the pool.
+ *
+ * With the parallelism of 1 all the tasks are executed sequentially by the calling thread.
+ */
+public class ParallelExecutor implements AutoCloseable {
+
+    public interface Task {
+        void execute() throws Exception;
+    }
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    public ParallelExecutor(int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be a positive number: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        if(parallelism == 1) {
+            executor = null;
+            return;
+        }
+        final int poolId = POOL_COUNTER.incrementAndGet();
+        final ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadCounter = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r, "wildfly-galleon-" + poolId + "-worker-" + threadCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+        executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Executes the tasks and waits for them to complete. If one of the tasks fails,
+     * the tasks that have not been started yet are cancelled and the failure
+     * of the first failed task (in the order of the list) is propagated.
+     *
+     * @param tasks  tasks to execute
+     * @throws ProvisioningException  in case one of the tasks failed
+     */
+    public void execute(List<? extends Task> tasks) throws ProvisioningException {
+        if(tasks.isEmpty()) {
+            return;
+        }
+        if(executor == null || tasks.size() == 1) {
+            for(Task task : tasks) {
+                try {
+                    task.execute();
+                } catch(Throwable t) {
+                    throw toProvisioningException(t);
+                }
+            }
+            return;
+        }
+
+        final List<FutureTask<Void>> futures = new ArrayList<>(tasks.size());
+        for(Task task : tasks) {
+            final FutureTask<Void> future = new FutureTask<>(() -> {
+                task.execute();
+                return null;
+            });
+            futures.add(future);
+            executor.execute(future);
+        }
+        Throwable failure = null;
+        for(FutureTask<Void> future : futures) {
+            if(failure != null) {
+                future.cancel(false);
+                continue;
+            }
+            // a no-op if the task has already been picked up by a worker
+            future.run();
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            }
+        }
+        if(failure != null) {
+            throw toProvisioningException(failure);
+        }
+    }
+
+    /**
+     * Executes the tasks respecting the dependencies between them and waits for them to complete.
+     * A task is started only after all the tasks it depends on have completed, the tasks that do not
+     * depend on each other may be executed concurrently. If one of the tasks fails, the tasks that have not
+     * been started yet are skipped and the failure of the first failed task (in the order of the list) is propagated.
+     *
+     * @param tasks  tasks to execute
+     * @param dependencies  for each task, the indexes of the tasks it depends on, which must be lower than
+     *                      the index of the task itself
+     * @throws ProvisioningException  in case one of the tasks failed
+     */
+    public void execute(List<? extends Task> tasks, List<int[]> dependencies) throws ProvisioningException {
+        if(tasks.isEmpty()) {
+            return;
+        }
+        if(executor == null || tasks.size() == 1) {
+            // the list order satisfies the dependencies
+            execute(tasks);
+            return;
+        }
+
+        final int size = tasks.size();
+        final AtomicInteger[] pendingDeps = new AtomicInteger[size];
+        final int[] successorsCount = new int[size];
+        for(int i = 0; i < size; ++i) {
+            final int[] deps = dependencies.get(i);
+            pendingDeps[i] = new AtomicInteger(deps.length);
+            for(int dep : deps) {
+                if(dep >= i) {
+                    throw new IllegalArgumentException("Task " + i + " depends on task " + dep + " which does not precede it");
+                }
+                ++successorsCount[dep];
+            }
+        }
+        final int[][] successors = new int[size][];
+        for(int i = 0; i < size; ++i) {
+            successors[i] = new int[successorsCount[i]];
+            successorsCount[i] = 0;
+        }
+        for(int i = 0; i < size; ++i) {
+            for(int dep : dependencies.get(i)) {
+                successors[dep][successorsCount[dep]++] = i;
+            }
+        }
+
+        final DependentTasks dependent = new DependentTasks(tasks, successors, pendingDeps);
+        for(int i = 0; i < size; ++i) {
+            // the counters may already be decremented by the tasks released in this loop
+            if(dependencies.get(i).length == 0) {
+                dependent.release(i);
+            }
+        }
+        boolean interrupted = false;
+        while(true) {
+            final FutureTask<Void> future;
+            try {
+                future = dependent.ready.take();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                dependent.failed = true;
+                continue;
+            }
+            if(future == dependent.completed) {
+                break;
+            }
+            // a no-op if the task has already been picked up by a worker
+            future.run();
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        for(Throwable failure : dependent.failures) {
+            if(failure != null) {
+                throw toProvisioningException(failure);
+            }
+        }
+        if(interrupted) {
+            throw new ProvisioningException("Interrupted while executing tasks");
+        }
+    }
+
+    private class DependentTasks {
+
+        final List<? extends Task> tasks;
+        final int[][] successors;
+        final AtomicInteger[] pendingDeps;
+        final Throwable[] failures;
+        final AtomicInteger remaining;
+        final BlockingQueue<FutureTask<Void>> ready = new LinkedBlockingQueue<>();
+        final FutureTask<Void> completed = new FutureTask<>(() -> null);
+        volatile boolean failed;
+
+        DependentTasks(List<? extends Task> tasks, int[][] successors, AtomicInteger[] pendingDeps) {
+            this.tasks = tasks;
+            this.successors = successors;
+            this.pendingDeps = pendingDeps;
+            this.failures = new Throwable[tasks.size()];
+            this.remaining = new AtomicInteger(tasks.size());
+        }
+
+        void release(int i) {
+            final FutureTask<Void> future = new FutureTask<>(() -> {
+                try {
+                    if(!failed) {
+                        tasks.get(i).execute();
+                    }
+                } catch(Throwable t) {
+                    failures[i] = t;
+                    failed = true;
+                } finally {
+                    for(int successor : successors[i]) {
+                        if(pendingDeps[successor].decrementAndGet() == 0) {
+                            release(successor);
+                        }
+                    }
+                    if(remaining.decrementAndGet() == 0) {
+                        ready.add(completed);
+                    }
+                }
+                return null;
+            });
+            ready.add(future);
+            executor.execute(future);
+        }
+    }
+
+    @Override
+    public void close() {
+        if(executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ProvisioningException toProvisioningException(Throwable t) {
+        if(t instanceof ProvisioningException) {
+            return (ProvisioningException) t;
+        }
+        if(t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if(t instanceof Error) {
+            throw (Error) t;
+        }
+        return new ProvisioningException(t.getMessage() == null ? "Parallel task failed" : t.getMessage(), t);
+    }
+}
@@ -39,6 +39,8 @@ public class PropertyReplacer {
     private static final int RESOLVED = 3;
     private static final int DEFAULT = 4;
 
+    private static final int BUFFER_SIZE = 8192;
+
     public static void copy(final Path src, final Path target, PropertyResolver resolver) throws IOException {
         if(!Files.exists(target.getParent())) {
             Files.createDirectories(target.getParent());
@@ -50,98 +52,111 @@ public class PropertyReplacer {
     }
 
     public static void copy(final Reader reader, Writer writer, PropertyResolver properties) throws IOException {
-        int state = INITIAL;
+        final char[] chars = new char[BUFFER_SIZE];
         final StringBuilder buf = new StringBuilder();
-        int ch = reader.read();
-        while (ch >= 0) {
-            switch (state) {
-                case INITIAL: {
-                    switch (ch) {
-                        case '$': {
+        int state = INITIAL;
+        int read = reader.read(chars);
+        while (read >= 0) {
+            int i = 0;
+            while (i < read) {
+                switch (state) {
+                    case INITIAL: {
+                        // copy everything up to the next $ as is
+                        final int start = i;
+                        while (i < read && chars[i] != '$') {
+                            ++i;
+                        }
+                        if (i > start) {
+                            writer.write(chars, start, i - start);
+                        }
+                        if (i < read) {
                             state = GOT_DOLLAR;
-                            break;
+                            ++i;
                         }
-                        default: {
-                            writer.write(ch);
+                        break;
+                    }
+                    case GOT_DOLLAR: {
+                        final char ch = chars[i++];
+                        switch (ch) {
+                            case '$': {
+                                // escaped $
+                                writer.write(ch);
+                                state = INITIAL;
+                                break;
+                            }
+                            case '{': {
+                                state = GOT_OPEN_BRACE;
+                                break;
+                            }
+                            default: {
+                                // invalid; emit and resume
+                                writer.write('$');
+                                writer.write(ch);
+                                state = INITIAL;
+                            }
                         }
+                        break;
                     }
-                    break;
-                }
-                case GOT_DOLLAR: {
-                    switch (ch) {
-                        case '$': {
-                            // escaped $
-                            buf.setLength(0);
-                            writer.write(ch);
-                            state = INITIAL;
-                            break;
+                    case GOT_OPEN_BRACE: {
+                        final int start = i;
+                        while (i < read && chars[i] != '}' && chars[i] != ',') {
+                            ++i;
                         }
-                        case '{': {
-                            state = GOT_OPEN_BRACE;
+                        buf.append(chars, start, i - start);
+                        if (i == read) {
                             break;
                         }
-                        default: {
-                            // invalid; emit and resume
-                            writer.append('$');
-                            writer.write(ch);
-                            buf.setLength(0);
-                            state = INITIAL;
-                        }
-                    }
-                    break;
-                }
-                case GOT_OPEN_BRACE: {
-                    switch (ch) {
-                        case '}':
-                        case ',': {
-                            final String name = buf.toString();
-                            if ("/".equals(name)) {
-                                writer.append(File.separatorChar);
+                        final char ch = chars[i++];
+                        if (buf.length() == 1 && buf.charAt(0) == '/') {
+                            writer.write(File.separatorChar);
+                            state = ch == '}' ? INITIAL : RESOLVED;
+                        } else {
+                            final String val = properties.resolveProperty(buf.toString());
+                            if (val != null) {
+                                writer.write(val);
                                 state = ch == '}' ? INITIAL : RESOLVED;
+                            } else if (ch == ',') {
+                                state = DEFAULT;
                             } else {
-                                final String val = properties.resolveProperty(name);
-                                if (val != null) {
-                                    writer.write(val);
-                                    state = ch == '}' ? INITIAL : RESOLVED;
-                                } else if (ch == ',') {
-                                    state = DEFAULT;
-                                } else {
-                                    throw new IllegalStateException("Failed to resolve property: " + buf);
-                                }
+                                throw new IllegalStateException("Failed to resolve property: " + buf);
                             }
-                            buf.setLength(0);
-                            break;
-                        }
-                        default: {
-                            buf.appendCodePoint(ch);
                         }
+                        buf.setLength(0);
+                        break;
                     }
-                    break;
-                }
-                case RESOLVED: {
-                    if (ch == '}') {
-                        state = INITIAL;
+                    case RESOLVED: {
+                        // skip the default value
+                        while (i < read && chars[i] != '}') {
+                            ++i;
+                        }
+                        if (i < read) {
+                            state = INITIAL;
+                            ++i;
+                        }
+                        break;
                     }
-                    break;
-                }
-                case DEFAULT: {
-                    if (ch == '}') {
-                        state = INITIAL;
-                        final String val = properties.resolveProperty(buf.toString());
-                        if (val != null) {
-                            writer.write(val);
-                        } else {
-                            writer.write(buf.toString());
+                    case DEFAULT: {
+                        final int start = i;
+                        while (i < read && chars[i] != '}') {
+                            ++i;
                         }
-                    } else {
-                        buf.appendCodePoint(ch);
+                        buf.append(chars, start, i - start);
+                        if (i == read) {
+                            break;
+                        }
+                        ++i;
+                        state = INITIAL;
+                        final String defaultValue = buf.toString();
+                        final String val = properties.resolveProperty(defaultValue);
+                        writer.write(val == null ? defaultValue : val);
+                        buf.setLength(0);
+                        break;
                     }
-                    break;
+                    default:
+                        throw new IllegalStateException("Unexpected state: " + state);
                 }
-                default:
-                    throw new IllegalStateException("Unexpected char seen: " + ch);
             }
-            ch = reader.read();
+            read = reader.read(chars);
         }
         switch (state) {
             case GOT_DOLLAR: {
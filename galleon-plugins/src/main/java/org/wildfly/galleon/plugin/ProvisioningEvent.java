@@ -0,0 +1,274 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java Flight Recorder event emitted during the provisioning.
+ *
+ * The event types are defined at runtime using {@code jdk.jfr.EventFactory}, so that the plugin still runs
+ * on JVMs that do not support JFR, in which case the events are simply discarded.
+ * The events are recorded in the {@code WildFly Provisioning} category by any standard JFR recording.
+ * Besides JFR, the events are passed to the {@link Listener}, if one is set for the thread committing the event.
+ * The listener is inherited by the threads started by the thread it was set for, so that the events of the tasks
+ * executed in parallel are received by the listener of the provisioning that started them, while other provisionings
+ * running in the same JVM are not affected.
+ *
+ * Typical use is
+ * <pre>
+ * final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.PHASE).set("phase", "packages");
+ * ...
+ * event.commit();
+ * </pre>
+ */
+public class ProvisioningEvent {
+
+    private static final String BYTES = "bytes";
+
+    public enum Type {
+        PHASE("Phase", "Provisioning Phase", "phase"),
+        PACKAGE_TASK("PackageTask", "Package Task", "featurePack", "package", "task"),
+        MODULE_TEMPLATE("ModuleTemplate", "Module Template", "featurePack", "package", "module"),
+        ARTIFACT_RESOLUTION("ArtifactResolution", "Artifact Resolution", "artifact", BYTES),
+        ARTIFACT_INSTALL("ArtifactInstall", "Artifact Install", "artifact", "mode", BYTES),
+        JANDEX_INDEX("JandexIndex", "Jandex Index", "artifact", "source", BYTES),
+        EMBEDDED_BOOT("EmbeddedBoot", "Embedded Process Boot", "process"),
+        CONFIG_OPERATION("ConfigOperation", "Config Operation", "operation", "address"),
+        CONFIG_FORK("ConfigFork", "Config Generator Fork", "script", BYTES);
+
+        private final String name;
+        private final String label;
+        private final List<String> fields;
+        private Object factory;
+
+        Type(String name, String label, String... fields) {
+            this.name = name;
+            this.label = label;
+            this.fields = Arrays.asList(fields);
+        }
+
+        /**
+         * Index of the field in the values passed to the {@link Listener}.
+         *
+         * @param field  field name
+         * @return  index of the field
+         */
+        public int indexOf(String field) {
+            final int i = fields.indexOf(field);
+            if (i < 0) {
+                throw new IllegalArgumentException("Event " + name + " does not have field " + field);
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Receives the committed events in the JVM, regardless of whether they are recorded by JFR.
+     */
+    public interface Listener {
+
+        /**
+         * Called when an event is committed.
+         *
+         * @param type  event type
+         * @param values  values of the fields in the order of their declaration in the type, null for the fields
+         *                that were not set
+         * @param duration  duration of the event in nanoseconds
+         * @param cpuTime  CPU time consumed by the process during the event in nanoseconds,
+         *                 available for {@link Type#PHASE} events only, otherwise -1
+         */
+        void committed(Type type, Object[] values, long duration, long cpuTime);
+    }
+
+    private static final ProvisioningEvent DISABLED = new ProvisioningEvent(null, null, null);
+
+    private static final ThreadLocal<Listener> LISTENER = new InheritableThreadLocal<>();
+
+    private static Method newEvent;
+    private static Method isEnabled;
+    private static Method begin;
+    private static Method end;
+    private static Method commit;
+    private static Method setField;
+
+    static {
+        try {
+            final Class<?> factoryCls = Class.forName("jdk.jfr.EventFactory");
+            final Class<?> eventCls = Class.forName("jdk.jfr.Event");
+            final Class<?> annotationCls = Class.forName("jdk.jfr.AnnotationElement");
+            final Class<?> descriptorCls = Class.forName("jdk.jfr.ValueDescriptor");
+            final Constructor<?> annotationCtor = annotationCls.getConstructor(Class.class, Object.class);
+            final Constructor<?> descriptorCtor = descriptorCls.getConstructor(Class.class, String.class);
+            final Method create = factoryCls.getMethod("create", List.class, List.class);
+            final Object category = annotationCtor.newInstance(Class.forName("jdk.jfr.Category"), new String[] {"WildFly Provisioning"});
+            for (Type type : Type.values()) {
+                final List<Object> annotations = new ArrayList<>(3);
+                annotations.add(annotationCtor.newInstance(Class.forName("jdk.jfr.Name"), "org.wildfly.galleon." + type.name));
+                annotations.add(annotationCtor.newInstance(Class.forName("jdk.jfr.Label"), type.label));
+                annotations.add(category);
+                final List<Object> fields = new ArrayList<>(type.fields.size());
+                for (String field : type.fields) {
+                    fields.add(descriptorCtor.newInstance(BYTES.equals(field) ? long.class : String.class, field));
+                }
+                type.factory = create.invoke(null, annotations, fields);
+            }
+            newEvent = factoryCls.getMethod("newEvent");
+            isEnabled = eventCls.getMethod("isEnabled");
+            begin = eventCls.getMethod("begin");
+            end = eventCls.getMethod("end");
+            commit = eventCls.getMethod("commit");
+            setField = eventCls.getMethod("set", int.class, Object.class);
+        } catch (Throwable t) {
+            // JFR is not available
+            newEvent = null;
+        }
+    }
+
+    /**
+     * Sets the listener of the events committed by the current thread and the threads it starts afterwards.
+     *
+     * @param listener  the listener or null to remove the current one
+     * @return  the listener previously set for the current thread or null
+     */
+    public static Listener setListener(Listener listener) {
+        final Listener previous = LISTENER.get();
+        if (listener == null) {
+            LISTENER.remove();
+        } else {
+            LISTENER.set(listener);
+        }
+        return previous;
+    }
+
+    /**
+     * Starts timing an event of the type.
+     *
+     * @param type  event type
+     * @return  started event, which is a no-op if neither JFR records the event type nor there is a listener
+     */
+    public static ProvisioningEvent begin(Type type) {
+        final Listener listener = LISTENER.get();
+        Object event = null;
+        if (newEvent != null) {
+            try {
+                event = newEvent.invoke(type.factory);
+                if ((Boolean) isEnabled.invoke(event)) {
+                    begin.invoke(event);
+                } else {
+                    event = null;
+                }
+            } catch (Exception e) {
+                event = null;
+            }
+        }
+        if (event == null && listener == null) {
+            return DISABLED;
+        }
+        return new ProvisioningEvent(type, event, listener);
+    }
+
+    static long getProcessCpuTime() {
+        final java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private final Type type;
+    private final Object event;
+    private final Listener eventListener;
+    private final Object[] values;
+    private final long startTime;
+    private final long startCpuTime;
+
+    private ProvisioningEvent(Type type, Object event, Listener listener) {
+        this.type = type;
+        this.event = event;
+        this.eventListener = listener;
+        if (listener == null) {
+            values = null;
+            startTime = 0;
+            startCpuTime = -1;
+        } else {
+            values = new Object[type.fields.size()];
+            startTime = System.nanoTime();
+            startCpuTime = type == Type.PHASE ? getProcessCpuTime() : -1;
+        }
+    }
+
+    /**
+     * Whether the event is going to be recorded. Can be used to avoid computing the values of the fields
+     * of an event that is going to be discarded.
+     *
+     * @return  true if the event is recorded, otherwise false
+     */
+    public boolean isEnabled() {
+        return type != null;
+    }
+
+    /**
+     * Sets the value of a field of the event. The value of the {@code bytes} field must be a number,
+     * the values of the other fields are converted to strings.
+     *
+     * @param field  field name
+     * @param value  field value
+     * @return  this event
+     */
+    public ProvisioningEvent set(String field, Object value) {
+        if (type == null || value == null) {
+            return this;
+        }
+        final int i = type.indexOf(field);
+        final Object converted = BYTES.equals(field) ? (Object) ((Number) value).longValue() : value.toString();
+        if (values != null) {
+            values[i] = converted;
+        }
+        if (event != null) {
+            try {
+                setField.invoke(event, i, converted);
+            } catch (Exception e) {
+                // ignore, the event is still committed without the value
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Ends timing the event and records it.
+     */
+    public void commit() {
+        if (event != null) {
+            try {
+                end.invoke(event);
+                commit.invoke(event);
+            } catch (Exception e) {
+                // the event is lost
+            }
+        }
+        if (eventListener != null) {
+            final long cpuTime = startCpuTime < 0 ? -1 : getProcessCpuTime() - startCpuTime;
+            eventListener.committed(type, values, System.nanoTime() - startTime, cpuTime);
+        }
+    }
+}
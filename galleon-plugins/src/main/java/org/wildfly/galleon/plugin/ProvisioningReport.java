@@ -0,0 +1,349 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the provisioning events into a summary which is written as a JSON document.
+ *
+ * The structure of the report is fixed: all the sections and the counters are always present
+ * (with zero values, if nothing was recorded) and new values are only ever added, so that the reports produced
+ * by different versions of the plugin could be compared. The times are in milliseconds, the CPU times are -1
+ * if the JVM does not provide the CPU time of the process.
+ */
+class ProvisioningReport implements ProvisioningEvent.Listener {
+
+    static final int VERSION = 1;
+
+    private static final int TOP = 10;
+
+    private static final Comparator<Timing> BY_DURATION = (t1, t2) -> Long.compare(t1.duration, t2.duration);
+
+    private static class Timing {
+        final Object[] values;
+        final long duration;
+
+        Timing(Object[] values, long duration) {
+            this.values = values;
+            this.duration = duration;
+        }
+    }
+
+    private static class Phase {
+        int count;
+        long wallTime;
+        long cpuTime;
+    }
+
+    private final long startTime = System.nanoTime();
+    private final long startCpuTime = ProvisioningEvent.getProcessCpuTime();
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final PriorityQueue<Timing> slowestModules = new PriorityQueue<>(TOP + 1, BY_DURATION);
+    private final PriorityQueue<Timing> slowestTasks = new PriorityQueue<>(TOP + 1, BY_DURATION);
+
+    private long artifactsResolved;
+    private long resolvedBytes;
+    private long artifactsCopied;
+    private long copiedBytes;
+    private long artifactsLinked;
+    private long linkedBytes;
+    private long jandexBuilt;
+    private long jandexCached;
+    private long jandexBytes;
+    private long embeddedBoots;
+    private long embeddedBootTime;
+    private long managementOps;
+    private long forks;
+    private long forkTime;
+
+    @Override
+    public synchronized void committed(ProvisioningEvent.Type type, Object[] values, long duration, long cpuTime) {
+        switch (type) {
+            case PHASE:
+                final String name = (String) values[0];
+                Phase phase = phases.get(name);
+                if (phase == null) {
+                    phase = new Phase();
+                    phases.put(name, phase);
+                }
+                ++phase.count;
+                phase.wallTime += duration;
+                phase.cpuTime = phase.cpuTime < 0 || cpuTime < 0 ? -1 : phase.cpuTime + cpuTime;
+                break;
+            case MODULE_TEMPLATE:
+                addSlowest(slowestModules, values, duration);
+                break;
+            case PACKAGE_TASK:
+                addSlowest(slowestTasks, values, duration);
+                break;
+            case ARTIFACT_RESOLUTION:
+                ++artifactsResolved;
+                resolvedBytes += bytes(type, values);
+                break;
+            case ARTIFACT_INSTALL:
+                if ("link".equals(values[type.indexOf("mode")])) {
+                    ++artifactsLinked;
+                    linkedBytes += bytes(type, values);
+                } else {
+                    ++artifactsCopied;
+                    copiedBytes += bytes(type, values);
+                }
+                break;
+            case JANDEX_INDEX:
+                if ("cached".equals(values[type.indexOf("source")])) {
+                    ++jandexCached;
+                } else {
+                    ++jandexBuilt;
+                }
+                jandexBytes += bytes(type, values);
+                break;
+            case EMBEDDED_BOOT:
+                ++embeddedBoots;
+                embeddedBootTime += duration;
+                break;
+            case CONFIG_OPERATION:
+                ++managementOps;
+                break;
+            case CONFIG_FORK:
+                ++forks;
+                forkTime += duration;
+                break;
+            default:
+        }
+    }
+
+    private static void addSlowest(PriorityQueue<Timing> slowest, Object[] values, long duration) {
+        slowest.add(new Timing(values, duration));
+        if (slowest.size() > TOP) {
+            slowest.poll();
+        }
+    }
+
+    private static long bytes(ProvisioningEvent.Type type, Object[] values) {
+        final Object bytes = values[type.indexOf("bytes")];
+        return bytes == null ? 0 : (Long) bytes;
+    }
+
+    synchronized void write(Path target) throws IOException {
+        final long cpuTime = startCpuTime < 0 ? -1 : ProvisioningEvent.getProcessCpuTime() - startCpuTime;
+        final JsonWriter json = new JsonWriter();
+        json.startObject();
+        json.field("version", VERSION);
+        json.field("wallMillis", millis(System.nanoTime() - startTime));
+        json.field("cpuMillis", millis(cpuTime));
+
+        json.startArray("phases");
+        for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+            final Phase phase = entry.getValue();
+            json.startObject();
+            json.field("name", entry.getKey());
+            json.field("count", phase.count);
+            json.field("wallMillis", millis(phase.wallTime));
+            json.field("cpuMillis", millis(phase.cpuTime));
+            json.endObject();
+        }
+        json.endArray();
+
+        writeSlowest(json, "slowestModules", slowestModules, ProvisioningEvent.Type.MODULE_TEMPLATE, "featurePack", "package", "module");
+        writeSlowest(json, "slowestTasks", slowestTasks, ProvisioningEvent.Type.PACKAGE_TASK, "featurePack", "package", "task");
+
+        json.startObject("artifacts");
+        json.field("resolved", artifactsResolved);
+        json.field("resolvedBytes", resolvedBytes);
+        json.field("copied", artifactsCopied);
+        json.field("copiedBytes", copiedBytes);
+        json.field("linked", artifactsLinked);
+        json.field("linkedBytes", linkedBytes);
+        json.endObject();
+
+        json.startObject("jandex");
+        json.field("built", jandexBuilt);
+        json.field("cached", jandexCached);
+        json.field("artifactBytes", jandexBytes);
+        json.endObject();
+
+        json.startObject("configGeneration");
+        json.field("embeddedBoots", embeddedBoots);
+        json.field("embeddedBootMillis", millis(embeddedBootTime));
+        json.field("managementOperations", managementOps);
+        json.field("forks", forks);
+        json.field("forkMillis", millis(forkTime));
+        json.endObject();
+
+        json.endObject();
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            writer.write(json.toString());
+            writer.newLine();
+        }
+    }
+
+    private static void writeSlowest(JsonWriter json, String name, PriorityQueue<Timing> slowest,
+            ProvisioningEvent.Type type, String... fields) {
+        final List<Timing> timings = new ArrayList<>(slowest);
+        Collections.sort(timings, BY_DURATION.reversed());
+        json.startArray(name);
+        for (Timing timing : timings) {
+            json.startObject();
+            for (String field : fields) {
+                final Object value = timing.values[type.indexOf(field)];
+                json.field(field, value == null ? null : value.toString());
+            }
+            json.field("wallMillis", millis(timing.duration));
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private static long millis(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static class JsonWriter {
+
+        private final StringBuilder buf = new StringBuilder();
+        private int depth;
+        private boolean first = true;
+
+        void startObject() {
+            value();
+            open('{');
+        }
+
+        void startObject(String name) {
+            name(name);
+            open('{');
+        }
+
+        void endObject() {
+            close('}');
+        }
+
+        void startArray(String name) {
+            name(name);
+            open('[');
+        }
+
+        void endArray() {
+            close(']');
+        }
+
+        void field(String name, long value) {
+            name(name);
+            buf.append(value);
+        }
+
+        void field(String name, String value) {
+            name(name);
+            if (value == null) {
+                buf.append("null");
+            } else {
+                string(value);
+            }
+        }
+
+        private void open(char ch) {
+            buf.append(ch);
+            ++depth;
+            first = true;
+        }
+
+        private void close(char ch) {
+            --depth;
+            if (!first) {
+                newLine();
+            }
+            buf.append(ch);
+            first = false;
+        }
+
+        private void name(String name) {
+            value();
+            string(name);
+            buf.append(" : ");
+        }
+
+        private void value() {
+            if (depth == 0) {
+                return;
+            }
+            if (!first) {
+                buf.append(',');
+            }
+            first = false;
+            newLine();
+        }
+
+        private void newLine() {
+            buf.append('\n');
+            for (int i = 0; i < depth; ++i) {
+                buf.append("  ");
+            }
+        }
+
+        private void string(String value) {
+            buf.append('"');
+            for (int i = 0; i < value.length(); ++i) {
+                final char ch = value.charAt(i);
+                switch (ch) {
+                    case '"':
+                        buf.append("\\\"");
+                        break;
+                    case '\\':
+                        buf.append("\\\\");
+                        break;
+                    case '\n':
+                        buf.append("\\n");
+                        break;
+                    case '\r':
+                        buf.append("\\r");
+                        break;
+                    case '\t':
+                        buf.append("\\t");
+                        break;
+                    default:
+                        if (ch < 0x20) {
+                            buf.append(String.format("\\u%04x", (int) ch));
+                        } else {
+                            buf.append(ch);
+                        }
+                }
+            }
+            buf.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return buf.toString();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jboss.galleon.util.CollectionUtils;
+
+/**
+ * Manifest of the schemas included in the artifacts of the schema groups of a feature-pack.
+ *
+ * The manifest is generated when the feature-pack is built and stored as {@link WfConstants#SCHEMA_MANIFEST}
+ * next to the {@link WfConstants#SCHEMA_GROUPS_TXT}. For each artifact of the schema groups it records the paths
+ * of the files under the schema directory of the artifact, so that during provisioning the artifacts
+ * that do not include schemas are not opened at all. Artifacts that are not in the manifest
+ * (e.g. because their version was overridden at provisioning time) have to be inspected.
+ */
+public class SchemaManifest {
+
+    private static final String HEADER = "# WildFly schema manifest 1";
+    private static final String ARTIFACT = "A";
+    private static final String FILE = "F";
+
+    /**
+     * Returns the key of an artifact in the manifest.
+     *
+     * @param groupId  group id
+     * @param artifactId  artifact id
+     * @param version  version
+     * @param classifier  classifier or null
+     * @param extension  extension
+     * @return  groupId:artifactId:version:classifier:extension
+     */
+    public static String key(String groupId, String artifactId, String version, String classifier, String extension) {
+        return groupId + ':' + artifactId + ':' + version + ':' + (classifier == null ? "" : classifier) + ':' + extension;
+    }
+
+    /**
+     * Lists the files under the schema directory of an artifact.
+     *
+     * @param artifact  artifact
+     * @return  paths of the schema files relative to the schema directory
+     * @throws IOException  in case the artifact could not be read
+     */
+    public static List<String> listSchemas(Path artifact) throws IOException {
+        final String prefix = WfConstants.SCHEMA + '/';
+        List<String> files = Collections.emptyList();
+        try (ZipFile zip = new ZipFile(artifact.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                    files = CollectionUtils.add(files, entry.getName().substring(prefix.length()));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Loads a manifest.
+     *
+     * @param file  manifest file
+     * @return  the manifest or null if the file does not exist or its format is not recognized
+     * @throws IOException  in case of a failure
+     */
+    public static SchemaManifest load(Path file) throws IOException {
+        if(!Files.exists(file)) {
+            return null;
+        }
+        final SchemaManifest manifest = new SchemaManifest();
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if(!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            String artifact = null;
+            String line = reader.readLine();
+            while(line != null) {
+                final String[] parts = line.split("\t", -1);
+                if(ARTIFACT.equals(parts[0]) && parts.length == 2) {
+                    artifact = parts[1];
+                    manifest.put(artifact, Collections.emptyList());
+                } else if(FILE.equals(parts[0]) && parts.length == 2 && artifact != null) {
+                    manifest.put(artifact, CollectionUtils.add(manifest.get(artifact), parts[1]));
+                } else {
+                    throw new IOException("Unexpected line in " + file + ": " + line);
+                }
+                line = reader.readLine();
+            }
+        }
+        return manifest;
+    }
+
+    private final Map<String, List<String>> artifacts = new TreeMap<>();
+
+    /**
+     * Records the schema files of an artifact.
+     *
+     * @param key  artifact key
+     * @param files  paths of the schema files relative to the schema directory, possibly empty
+     */
+    public void put(String key, List<String> files) {
+        artifacts.put(key, files);
+    }
+
+    /**
+     * Adds the artifacts of another manifest.
+     *
+     * @param manifest  manifest to add
+     */
+    public void putAll(SchemaManifest manifest) {
+        artifacts.putAll(manifest.artifacts);
+    }
+
+    /**
+     * @param key  artifact key
+     * @return  paths of the schema files of the artifact relative to the schema directory
+     *          or null if the artifact is not in the manifest
+     */
+    public List<String> get(String key) {
+        return artifacts.get(key);
+    }
+
+    public boolean isEmpty() {
+        return artifacts.isEmpty();
+    }
+
+    public void store(Path file) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for(Map.Entry<String, List<String>> entry : artifacts.entrySet()) {
+                writer.write(ARTIFACT + '\t' + entry.getKey());
+                writer.newLine();
+                for(String schema : entry.getValue()) {
+                    writer.write(FILE + '\t' + schema);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.galleon.ProvisioningException;
+
+/**
+ * Executes tasks concurrently unless they access the same paths.
+ *
+ * Each task is added with the paths (relative to the installation directory) it reads and writes.
+ * A task depends on each of the previously added tasks that writes a path it reads or writes or that reads
+ * a path it writes, where a path also covers everything underneath it. A task that is added without the paths
+ * it writes may access anything, so it depends on all the previously added tasks and all the tasks added after it
+ * depend on it. The conflicting tasks are executed in the order they were added in, which makes the result
+ * the same as if all the tasks were executed sequentially in that order.
+ */
+class TaskScheduler {
+
+    private static final String[] ALL = new String[0];
+
+    private final List<ParallelExecutor.Task> tasks = new ArrayList<>();
+    private final List<String[]> inputs = new ArrayList<>();
+    private final List<String[]> outputs = new ArrayList<>();
+
+    /**
+     * Adds a task.
+     *
+     * @param task  the task
+     * @param inputs  paths the task reads, null is the same as an empty list
+     * @param outputs  paths the task writes or deletes, null if they are unknown
+     */
+    void add(ParallelExecutor.Task task, List<String> inputs, List<String> outputs) {
+        tasks.add(task);
+        if (outputs == null) {
+            this.inputs.add(ALL);
+            this.outputs.add(ALL);
+        } else {
+            this.inputs.add(normalize(inputs == null ? Collections.emptyList() : inputs));
+            this.outputs.add(normalize(outputs));
+        }
+    }
+
+    boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+
+    void execute(ParallelExecutor executor) throws ProvisioningException {
+        final List<int[]> dependencies = new ArrayList<>(tasks.size());
+        int lastBarrier = -1;
+        final int[] buf = new int[tasks.size()];
+        for (int i = 0; i < tasks.size(); ++i) {
+            int count = 0;
+            final boolean barrier = outputs.get(i) == ALL;
+            for (int j = i - 1; j > lastBarrier; --j) {
+                if (barrier || conflict(j, i)) {
+                    buf[count++] = j;
+                }
+            }
+            if (lastBarrier >= 0) {
+                // the barrier depends on all the tasks preceding it
+                buf[count++] = lastBarrier;
+            }
+            dependencies.add(Arrays.copyOf(buf, count));
+            if (barrier) {
+                lastBarrier = i;
+            }
+        }
+        executor.execute(tasks, dependencies);
+    }
+
+    private boolean conflict(int t1, int t2) {
+        final String[] out1 = outputs.get(t1);
+        final String[] out2 = outputs.get(t2);
+        return overlap(out1, out2) || overlap(out1, inputs.get(t2)) || overlap(inputs.get(t1), out2);
+    }
+
+    private static boolean overlap(String[] paths1, String[] paths2) {
+        for (String p1 : paths1) {
+            for (String p2 : paths2) {
+                if (overlap(p1, p2)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean overlap(String p1, String p2) {
+        if (p1.length() > p2.length()) {
+            final String tmp = p1;
+            p1 = p2;
+            p2 = tmp;
+        }
+        return p1.isEmpty() || p2.startsWith(p1) && (p2.length() == p1.length() || p2.charAt(p1.length()) == '/');
+    }
+
+    private static String[] normalize(List<String> paths) {
+        final String[] normalized = new String[paths.size()];
+        for (int i = 0; i < normalized.length; ++i) {
+            String path = paths.get(i).replace('\\', '/');
+            while (path.startsWith("/")) {
+                path = path.substring(1);
+            }
+            path = Paths.get(path).normalize().toString().replace(File.separatorChar, '/');
+            while (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            normalized[i] = path;
+        }
+        return normalized;
+    }
+}
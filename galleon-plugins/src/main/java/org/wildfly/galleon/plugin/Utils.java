@@ -20,23 +20,28 @@ package org.wildfly.galleon.plugin;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.FileAlreadyExistsException;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.jboss.galleon.Errors;
 import org.jboss.galleon.ProvisioningException;
@@ -81,46 +86,107 @@ public class Utils {
     }
 
     public static MavenArtifact toArtifactCoords(Map<String, String> versionProps, String str, boolean optional) throws ProvisioningException {
-        String[] parts = str.split(":");
-        if(parts.length < 2) {
+        final String[] coords = resolveCoords(versionProps, str, optional);
+        return coords == null ? null : toArtifact(coords);
+    }
+
+    /**
+     * Parses artifact coordinates in the groupId:artifactId[:[version][:[classifier][:extension]]] format
+     * and resolves the version from the version properties if it was not specified.
+     *
+     * @param versionProps  artifact versions
+     * @param str  artifact coordinates
+     * @param optional  whether to return null instead of failing in case the version could not be resolved
+     * @return  groupId, artifactId, version, classifier (or null, if not specified) and extension (or null, if not specified)
+     * @throws ProvisioningException  in case the version could not be resolved
+     */
+    static String[] resolveCoords(Map<String, String> versionProps, String str, boolean optional) throws ProvisioningException {
+        final String[] parts = new String[5];
+        final int count = splitCoords(str, parts);
+        if(count < 2) {
             throw new IllegalArgumentException("Unexpected artifact coordinates format: " + str);
         }
-        final MavenArtifact artifact = new MavenArtifact();
-        artifact.setGroupId(parts[0]);
-        artifact.setArtifactId(parts[1]);
-        artifact.setExtension(MavenArtifact.EXT_JAR);
-        if(parts.length > 2) {
-            if(!parts[2].isEmpty()) {
-                artifact.setVersion(parts[2]);
-            }
-            if(parts.length > 3) {
-                artifact.setClassifier(parts[3]);
-                if(parts.length > 4 && !parts[4].isEmpty()) {
-                    artifact.setExtension(parts[4]);
-                    if (parts.length > 5) {
-                        throw new IllegalArgumentException("Unexpected artifact coordinates format: " + str);
-                    }
-                }
-            }
+        if(count < 3 || parts[2].isEmpty()) {
+            parts[2] = null;
+        }
+        if(count < 4) {
+            parts[3] = null;
+        }
+        if(count < 5 || parts[4].isEmpty()) {
+            parts[4] = null;
+        } else if(count > 5) {
+            throw new IllegalArgumentException("Unexpected artifact coordinates format: " + str);
         }
 
-        if(!artifact.hasVersion()) {
-            final String resolvedStr = versionProps.get(artifact.getGroupId() + ':' + artifact.getArtifactId());
+        if(parts[2] == null) {
+            final String resolvedStr = versionProps.get(parts[0] + ':' + parts[1]);
             if (resolvedStr == null) {
                 if (optional) {
                     return null;
                 }
-                throw new ProvisioningException("Failed to resolve the version of " + artifact.getGroupId() + ':' + artifact.getArtifactId());
+                throw new ProvisioningException("Failed to resolve the version of " + parts[0] + ':' + parts[1]);
             }
-            parts = resolvedStr.split(":");
-            if (parts.length < 3) {
+            final String[] resolvedParts = new String[3];
+            if (splitCoords(resolvedStr, resolvedParts) < 3) {
                 throw new ProvisioningException("Failed to resolve the version for artifact: " + resolvedStr);
             }
-            artifact.setVersion(parts[2]);
+            parts[2] = resolvedParts[2];
         }
+        return parts;
+    }
+
+    static MavenArtifact toArtifact(String[] coords) {
+        final MavenArtifact artifact = new MavenArtifact();
+        artifact.setGroupId(coords[0]);
+        artifact.setArtifactId(coords[1]);
+        artifact.setVersion(coords[2]);
+        if(coords[3] != null) {
+            artifact.setClassifier(coords[3]);
+        }
+        artifact.setExtension(coords[4] == null ? MavenArtifact.EXT_JAR : coords[4]);
         return artifact;
     }
 
+    /**
+     * Splits the coordinates by ':' the way {@code String.split(":")} does (i.e. ignoring trailing empty parts)
+     * without creating the parts that don't fit into the target array.
+     *
+     * @param str  coordinates
+     * @param parts  target array
+     * @return  the total number of parts
+     */
+    static int splitCoords(String str, String[] parts) {
+        int end = str.length();
+        while(end > 0 && str.charAt(end - 1) == ':') {
+            --end;
+        }
+        if(end == 0) {
+            if(!str.isEmpty()) {
+                return 0;
+            }
+            if(parts.length > 0) {
+                parts[0] = str;
+            }
+            return 1;
+        }
+        int count = 0;
+        int start = 0;
+        while(true) {
+            int colon = str.indexOf(':', start);
+            if(colon < 0 || colon > end) {
+                colon = end;
+            }
+            if(count < parts.length) {
+                parts[count] = str.substring(start, colon);
+            }
+            ++count;
+            if(colon == end) {
+                return count;
+            }
+            start = colon + 1;
+        }
+    }
+
     public static List<Path> collectLayersConf(ProvisioningLayout<?> layout) throws ProvisioningException {
         List<Path> layersConfs = Collections.emptyList();
         for(FeaturePackLayout fp : layout.getOrderedFeaturePacks()) {
@@ -182,46 +248,179 @@ public class Utils {
     }
 
     public static void extractArtifact(Path artifact, Path target, CopyArtifact copy) throws IOException {
+        extractArtifact(artifact, target, copy, null);
+    }
+
+    /**
+     * Extracts the entries of the artifact accepted by the copy-artifact filters into the target directory.
+     * The entries are read from the central directory of the archive. The directories are created first,
+     * after which the files are inflated and written, concurrently if an executor is provided.
+     * Entries whose parent directory is excluded by the filters are skipped.
+     *
+     * @param artifact  archive to extract
+     * @param target  target directory
+     * @param copy  copy-artifact task with the filters
+     * @param executor  executor to write the files with or null
+     * @throws IOException  in case of a failure
+     */
+    public static void extractArtifact(Path artifact, Path target, CopyArtifact copy, ParallelExecutor executor) throws IOException {
         if(!Files.exists(target)) {
             Files.createDirectories(target);
         }
-        try (FileSystem zipFS = FileSystems.newFileSystem(artifact, null)) {
-            for(Path zipRoot : zipFS.getRootDirectories()) {
-                Files.walkFileTree(zipRoot, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
-                        new SimpleFileVisitor<Path>() {
-                            @Override
-                            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
-                                throws IOException {
-                                String entry = dir.toString().substring(1);
-                                if(entry.isEmpty()) {
-                                    return FileVisitResult.CONTINUE;
-                                }
-                                if(!entry.endsWith("/")) {
-                                    entry += '/';
-                                }
-                                if(!copy.includeFile(entry)) {
-                                    return FileVisitResult.SKIP_SUBTREE;
-                                }
-                                final Path targetDir = target.resolve(zipRoot.relativize(dir).toString());
-                                try {
-                                    Files.copy(dir, targetDir);
-                                } catch (FileAlreadyExistsException e) {
-                                     if (!Files.isDirectory(targetDir))
-                                         throw e;
-                                }
-                                return FileVisitResult.CONTINUE;
-                            }
-                            @Override
-                            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-                                throws IOException {
-                                if(copy.includeFile(file.toString().substring(1))) {
-                                    final Path targetPath = target.resolve(zipRoot.relativize(file).toString());
-                                    Files.copy(file, targetPath);
-                                }
-                                return FileVisitResult.CONTINUE;
-                            }
-                        });
+        final Path normalizedTarget = target.toAbsolutePath().normalize();
+        try (ZipFile zip = new ZipFile(artifact.toFile())) {
+            final Map<String, Boolean> dirs = new HashMap<>();
+            final List<ZipEntry> files = new ArrayList<>();
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                while(!name.isEmpty() && name.charAt(0) == '/') {
+                    name = name.substring(1);
+                }
+                if(name.isEmpty()) {
+                    continue;
+                }
+                final Path entryTarget = normalizedTarget.resolve(name).normalize();
+                if(!entryTarget.startsWith(normalizedTarget) || entryTarget.equals(normalizedTarget)) {
+                    throw new IOException("Entry " + entry.getName() + " of " + artifact + " is outside of the target directory");
+                }
+                if(entry.isDirectory()) {
+                    if(!name.endsWith("/")) {
+                        name += '/';
+                    }
+                    isDirIncluded(name, copy, dirs);
+                } else if(isParentIncluded(name, copy, dirs) && copy.includeFile(name)) {
+                    files.add(entry);
+                }
+            }
+
+            final List<String> includedDirs = new ArrayList<>(dirs.size());
+            for(Map.Entry<String, Boolean> dir : dirs.entrySet()) {
+                if(dir.getValue()) {
+                    includedDirs.add(dir.getKey());
+                }
+            }
+            Collections.sort(includedDirs);
+            for(String dir : includedDirs) {
+                Files.createDirectories(target.resolve(dir));
             }
+
+            if(executor == null || executor.getParallelism() == 1 || files.size() < 2) {
+                for(ZipEntry entry : files) {
+                    extractEntry(zip, entry, target);
+                }
+                return;
+            }
+            final int chunks = Math.min(executor.getParallelism(), files.size());
+            final List<ParallelExecutor.Task> tasks = new ArrayList<>(chunks);
+            for(int i = 0; i < chunks; ++i) {
+                final int chunk = i;
+                tasks.add(() -> {
+                    for(int j = chunk; j < files.size(); j += chunks) {
+                        extractEntry(zip, files.get(j), target);
+                    }
+                });
+            }
+            try {
+                executor.execute(tasks);
+            } catch (ProvisioningException e) {
+                if(e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Failed to extract " + artifact, e);
+            }
+        }
+    }
+
+    private static boolean isParentIncluded(String name, CopyArtifact copy, Map<String, Boolean> dirs) {
+        final int i = name.lastIndexOf('/', name.length() - 2);
+        return i < 0 || isDirIncluded(name.substring(0, i + 1), copy, dirs);
+    }
+
+    private static boolean isDirIncluded(String dir, CopyArtifact copy, Map<String, Boolean> dirs) {
+        Boolean included = dirs.get(dir);
+        if(included == null) {
+            included = isParentIncluded(dir, copy, dirs) && copy.includeFile(dir);
+            dirs.put(dir, included);
+        }
+        return included;
+    }
+
+    private static void extractEntry(ZipFile zip, ZipEntry entry, Path target) throws IOException {
+        String name = entry.getName();
+        while(name.charAt(0) == '/') {
+            name = name.substring(1);
+        }
+        try(InputStream in = zip.getInputStream(entry)) {
+            Files.copy(in, target.resolve(name));
+        }
+    }
+
+    /**
+     * Copies the content of the file with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+     * Like {@link Files#copy(Path, Path, java.nio.file.CopyOption...)} with {@link java.nio.file.StandardCopyOption#REPLACE_EXISTING},
+     * the existing target is replaced (not overwritten, it could be a link) and the target is created
+     * with the POSIX permissions of the source, if supported.
+     */
+    public static void copyFile(Path src, Path target) throws IOException {
+        final PosixFileAttributeView posixView = Files.getFileAttributeView(src, PosixFileAttributeView.class);
+        final FileAttribute<?>[] attrs = posixView == null ? new FileAttribute<?>[0]
+                : new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(posixView.readAttributes().permissions())};
+        Files.deleteIfExists(target);
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), attrs)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0 && position >= in.size()) {
+                    // the source has been truncated
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Returns the SHA-1 digest of the content as a hex string.
+     */
+    public static String sha1(byte[] content) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to initialize SHA-1 digest", e);
+        }
+        return toHex(digest.digest(content));
+    }
+
+    /**
+     * Returns the SHA-1 digest of the content of the file as a hex string.
+     */
+    public static String sha1(Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Failed to initialize SHA-1 digest", e);
+        }
+        final byte[] buf = new byte[65536];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                digest.update(buf, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
         }
+        return hex.toString();
     }
 }
@@ -16,9 +16,7 @@
  */
 package org.wildfly.galleon.plugin;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import static java.nio.file.FileVisitResult.CONTINUE;
 import java.nio.file.Files;
@@ -26,20 +24,14 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
-import nu.xom.Attribute;
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Elements;
-import nu.xom.ParsingException;
 import org.jboss.galleon.ProvisioningDescriptionException;
 import org.jboss.galleon.ProvisioningException;
 import org.jboss.galleon.plugin.CliPlugin;
+import org.jboss.galleon.runtime.FeaturePackRuntime;
 import org.jboss.galleon.runtime.PackageRuntime;
 import org.jboss.galleon.spec.PackageSpec;
 
@@ -50,48 +42,81 @@ import org.jboss.galleon.spec.PackageSpec;
 public class WfCliPlugin implements CliPlugin {
     private static final String MODULE_PATH = "pm/wildfly/module";
     private static final String MODULE_XML = "module.xml";
-    private static final String VERSIONS_PATH = "wildfly/artifact-versions.properties";
+
+    private final Map<Path, Map<String, String>> fpVariables = new HashMap<>();
+    private final Map<Path, ModuleDescriptor> moduleDescriptors = new HashMap<>();
+    private final Map<Path, ModuleIndex> moduleIndexes = new HashMap<>();
+    private final Map<Path, ArtifactIndex> artifactIndexes = new HashMap<>();
 
     @Override
     public CustomPackageContent handlePackageContent(PackageRuntime pkg)
             throws ProvisioningException, ProvisioningDescriptionException, IOException {
+        final Path wfRes = pkg.getFeaturePackRuntime().getResource(WfConstants.WILDFLY);
+        final ModuleIndex moduleIndex = getModuleIndex(wfRes);
+        if (moduleIndex != null) {
+            final ModuleIndex.Module module = moduleIndex.get(pkg.getName());
+            if (module != null) {
+                List<String> artifacts = new ArrayList<>();
+                final String moduleVersion = resolveModule(wfRes, module.getVersionArtifactName(), module.getArtifacts(), artifacts);
+                return new ModuleContent(moduleVersion, artifacts, getArtifactIndex(wfRes));
+            }
+        }
         Path modulePath = pkg.getContentDir().getParent().resolve(MODULE_PATH);
         if (Files.exists(modulePath)) {
-            Path props = pkg.getFeaturePackRuntime().getResource(VERSIONS_PATH);
-            Map<String, String> variables = getVariables(props);
+            final ModuleDescriptor descriptor = findModuleDescriptor(pkg.getContentDir(), pkg.getSpec());
             List<String> artifacts = new ArrayList<>();
-            String moduleVersion;
-            try {
-                moduleVersion = parseModuleDescriptor(variables, pkg.getContentDir(),
-                        pkg.getSpec(), artifacts);
-            } catch (ParsingException ex) {
-                throw new ProvisioningException(ex);
-            }
-            return new ModuleContent(buildInfo(artifacts, moduleVersion));
+            final String moduleVersion = resolveModule(wfRes, descriptor.getVersionArtifactName(), descriptor.getArtifacts(), artifacts);
+            return new ModuleContent(moduleVersion, artifacts, getArtifactIndex(wfRes));
         } else {
             return null;
         }
     }
 
-    private class ModuleContent implements CustomPackageContent {
+    /**
+     * The content of a JBoss module package.
+     */
+    public static class ModuleContent implements CustomPackageContent {
 
-        private final String content;
+        private final String moduleVersion;
+        private final List<String> artifacts;
+        private final ArtifactIndex artifactIndex;
+
+        private ModuleContent(String moduleVersion, List<String> artifacts, ArtifactIndex artifactIndex) {
+            this.moduleVersion = moduleVersion;
+            this.artifacts = artifacts;
+            this.artifactIndex = artifactIndex;
+        }
+
+        /**
+         * @return  the resolved module version or null
+         */
+        public String getModuleVersion() {
+            return moduleVersion;
+        }
 
-        private ModuleContent(String content) throws IOException, ProvisioningException {
-            this.content = content;
+        /**
+         * @return  the resolved coordinates of the module artifacts
+         */
+        public List<String> getArtifacts() {
+            return artifacts;
+        }
+
+        /**
+         * @return  the artifact index of the feature-pack of the package or null if the feature-pack does not include it
+         */
+        public ArtifactIndex getArtifactIndex() {
+            return artifactIndex;
         }
 
         @Override
         public String getInfo() {
-            return content;
+            return buildInfo(artifacts, moduleVersion);
         }
     }
 
-    private static String parseModuleDescriptor(Map<String, String> variables,
-            Path contentDir, PackageSpec spec, List<String> artifacts) throws IOException, ProvisioningException, ParsingException {
+    private ModuleDescriptor findModuleDescriptor(Path contentDir, PackageSpec spec) throws IOException, ProvisioningException {
         Path modulePath = contentDir.getParent().resolve(MODULE_PATH);
         List<Path> moduleHolder = new ArrayList<>();
-        String moduleVersion = null;
         Files.walkFileTree(modulePath, new SimpleFileVisitor<Path>() {
 
             @Override
@@ -124,56 +149,25 @@ public class WfCliPlugin implements CliPlugin {
         if (moduleHolder.isEmpty()) {
             throw new ProvisioningException("No module descriptor for " + spec.getName());
         }
-        Path p = moduleHolder.get(0);
-        final Builder builder = new Builder(false);
-        final Document document;
-        try (BufferedReader reader = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            document = builder.build(reader);
-        }
-        final Element rootElement = document.getRootElement();
-        final Attribute versionAttribute = rootElement.getAttribute("version");
-        if (versionAttribute != null) {
-            final String versionExpr = versionAttribute.getValue();
-            if (versionExpr.startsWith("${") && versionExpr.endsWith("}")) {
-                final String exprBody = versionExpr.substring(2, versionExpr.length() - 1);
-                final int optionsIndex = exprBody.indexOf('?');
-                final String artifactName;
-                if (optionsIndex > 0) {
-                    artifactName = exprBody.substring(0, optionsIndex);
-                } else {
-                    artifactName = exprBody;
-                }
-                String vers = variables.get(artifactName);
-                if (vers != null) {
-                    int i = vers.lastIndexOf(":");
-                    if (i > 0) {
-                        vers = vers.substring(i + 1);
-                    }
-                    moduleVersion = vers;
+        return getModuleDescriptor(moduleHolder.get(0));
+    }
+
+    private String resolveModule(Path wfRes, String versionArtifactName, List<ModuleDescriptor.Artifact> moduleArtifacts,
+            List<String> artifacts) throws ProvisioningException {
+        String moduleVersion = null;
+        if (versionArtifactName != null) {
+            String vers = getVariables(wfRes).get(versionArtifactName);
+            if (vers != null) {
+                int i = vers.lastIndexOf(":");
+                if (i > 0) {
+                    vers = vers.substring(i + 1);
                 }
+                moduleVersion = vers;
             }
         }
-        final Element resourcesElement = rootElement.getFirstChildElement("resources", rootElement.getNamespaceURI());
-        if (resourcesElement != null) {
-            final Elements artfs = resourcesElement.getChildElements("artifact", rootElement.getNamespaceURI());
-            final int artifactCount = artfs.size();
-            for (int i = 0; i < artifactCount; i++) {
-                final Element element = artfs.get(i);
-                assert element.getLocalName().equals("artifact");
-                final Attribute attribute = element.getAttribute("name");
-                final String nameExpr = attribute.getValue();
-                if (nameExpr.startsWith("${") && nameExpr.endsWith("}")) {
-                    final String exprBody = nameExpr.substring(2, nameExpr.length() - 1);
-                    final int optionsIndex = exprBody.indexOf('?');
-                    final String artifactName;
-                    if (optionsIndex >= 0) {
-                        artifactName = exprBody.substring(0, optionsIndex);
-                    } else {
-                        artifactName = exprBody;
-                    }
-                    final String resolved = variables.get(artifactName);
-                    artifacts.add(resolved);
-                }
+        for (ModuleDescriptor.Artifact artifact : moduleArtifacts) {
+            if (artifact.isExpression()) {
+                artifacts.add(getVariables(wfRes).get(artifact.getCoords()));
             }
         }
         return moduleVersion;
@@ -194,20 +188,52 @@ public class WfCliPlugin implements CliPlugin {
         return builder.toString();
     }
 
-    private static Map<String, String> getVariables(Path props) throws ProvisioningException, IOException {
-        Map<String, String> variables = new HashMap<>();
-        if (Files.exists(props)) {
-            try (Stream<String> lines = Files.lines(props)) {
-                final Iterator<String> iterator = lines.iterator();
-                while (iterator.hasNext()) {
-                    final String line = iterator.next();
-                    final int i = line.indexOf('=');
-                    if (i < 0) {
-                        throw new ProvisioningException("Failed to locate '=' character in " + line);
-                    }
-                    variables.put(line.substring(0, i), line.substring(i + 1));
-                }
+    /**
+     * Returns the index of the artifacts of the JBoss modules of a feature-pack.
+     *
+     * @param fp  feature-pack
+     * @return  the artifact index or null if the feature-pack does not include it
+     * @throws IOException  in case the index could not be read
+     */
+    public ArtifactIndex getArtifactIndex(FeaturePackRuntime fp) throws IOException {
+        return getArtifactIndex(fp.getResource(WfConstants.WILDFLY));
+    }
+
+    private ArtifactIndex getArtifactIndex(Path wfRes) throws IOException {
+        if (artifactIndexes.containsKey(wfRes)) {
+            return artifactIndexes.get(wfRes);
+        }
+        final ArtifactIndex artifactIndex = ArtifactIndex.load(wfRes.resolve(WfConstants.ARTIFACT_INDEX));
+        artifactIndexes.put(wfRes, artifactIndex);
+        return artifactIndex;
+    }
+
+    private ModuleIndex getModuleIndex(Path wfRes) throws IOException {
+        if (moduleIndexes.containsKey(wfRes)) {
+            return moduleIndexes.get(wfRes);
+        }
+        final ModuleIndex moduleIndex = Files.exists(wfRes) ? ModuleIndex.load(wfRes) : null;
+        moduleIndexes.put(wfRes, moduleIndex);
+        return moduleIndex;
+    }
+
+    private ModuleDescriptor getModuleDescriptor(Path moduleXml) throws IOException {
+        ModuleDescriptor descriptor = moduleDescriptors.get(moduleXml);
+        if (descriptor == null) {
+            descriptor = ModuleDescriptor.parse(moduleXml);
+            moduleDescriptors.put(moduleXml, descriptor);
+        }
+        return descriptor;
+    }
+
+    private Map<String, String> getVariables(Path wfRes) throws ProvisioningException {
+        Map<String, String> variables = fpVariables.get(wfRes);
+        if (variables == null) {
+            variables = Files.exists(wfRes) ? ArtifactVersions.load(wfRes) : null;
+            if (variables == null) {
+                variables = Collections.emptyMap();
             }
+            fpVariables.put(wfRes, variables);
         }
         return variables;
     }
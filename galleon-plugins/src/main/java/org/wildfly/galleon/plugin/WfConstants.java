@@ -27,6 +27,8 @@ public interface WfConstants {
     String WF_CONFIG_GEN = "wildfly-config-gen";
     String WF_GALLEON_PLUGINS = "wildfly-galleon-plugins";
 
+    String ARTIFACT_INDEX = "artifact-index.txt";
+    String ARTIFACT_VERSIONS_INDEX = "artifact-versions.idx";
     String ARTIFACT_VERSIONS_PROPS = "artifact-versions.properties";
     String BASE = "base";
     String CONFIG = "config";
@@ -46,6 +48,7 @@ public interface WfConstants {
     String LAYERS = "layers";
     String LAYERS_CONF = "layers.conf";
     String MODULE = "module";
+    String MODULE_INDEX = "module-index.txt";
     String MODULE_XML = "module.xml";
     String MODULES = "modules";
     String MODULES_ALL = "modules.all";
@@ -53,6 +56,7 @@ public interface WfConstants {
     String PROFILE = "profile";
     String SCHEMA = "schema";
     String SCHEMA_GROUPS_TXT = "schema-groups.txt";
+    String SCHEMA_MANIFEST = "schema-manifest.txt";
     String SCRIPTS = "scripts";
     String STANDALONE = "standalone";
     String STEPS = "steps";
@@ -24,10 +24,9 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
 
 import org.jboss.galleon.Errors;
 import org.jboss.galleon.MessageWriter;
@@ -39,6 +38,7 @@ import org.jboss.galleon.layout.FeaturePackLayout;
 import org.jboss.galleon.layout.ProvisioningLayout;
 import org.jboss.galleon.plugin.StateDiffPlugin;
 import org.jboss.galleon.repo.RepositoryArtifactResolver;
+import org.jboss.galleon.util.CollectionUtils;
 
 /**
  *
@@ -63,7 +63,7 @@ public class WfDiffPlugin implements StateDiffPlugin {
             throw new ProvisioningException(Errors.pathDoesNotExist(configGenJar));
         }
 
-        final PropertyResolver propertyResolver = getPropertyResolver(layout);
+        final Map<String, String> artifactVersions = getArtifactVersions(layout);
 
         final FsDiff fsDiff = diffProvider.getFsDiff();
         final FsEntry homeEntry = fsDiff.getOtherRoot();
@@ -73,8 +73,8 @@ public class WfDiffPlugin implements StateDiffPlugin {
             cp[0] = configGenJar.toUri().toURL();
             cp[1] = resolve(homeEntry.getPath(), "jboss-modules.jar").toUri().toURL();
             final RepositoryArtifactResolver maven = layout.getFactory().getUniverseResolver().getArtifactResolver("repository.maven");
-            cp[2] = maven.resolve(toArtifactCoords("org.wildfly.core:wildfly-cli::client", propertyResolver)).toUri().toURL();
-            cp[3] = maven.resolve(toArtifactCoords("org.wildfly.core:wildfly-launcher", propertyResolver)).toUri().toURL();
+            cp[2] = maven.resolve(toArtifactCoords("org.wildfly.core:wildfly-cli::client", artifactVersions)).toUri().toURL();
+            cp[3] = maven.resolve(toArtifactCoords("org.wildfly.core:wildfly-launcher", artifactVersions)).toUri().toURL();
         } catch (IOException e) {
             throw new ProvisioningException("Failed to init classpath", e);
         }
@@ -121,73 +121,27 @@ public class WfDiffPlugin implements StateDiffPlugin {
         return p;
     }
 
-    private PropertyResolver getPropertyResolver(ProvisioningLayout<?> layout) throws ProvisioningException {
-        final Map<String, String> artifactVersions = new HashMap<>();
+    private Map<String, String> getArtifactVersions(ProvisioningLayout<?> layout) throws ProvisioningException {
+        List<Map<String, String>> artifactVersions = Collections.emptyList();
         for(FeaturePackLayout fp : layout.getOrderedFeaturePacks()) {
             final Path wfRes = fp.getResource(WfConstants.WILDFLY);
             if(!Files.exists(wfRes)) {
                 continue;
             }
-
-            final Path artifactProps = wfRes.resolve(WfConstants.ARTIFACT_VERSIONS_PROPS);
-            if(Files.exists(artifactProps)) {
-                try (Stream<String> lines = Files.lines(artifactProps)) {
-                    final Iterator<String> iterator = lines.iterator();
-                    while (iterator.hasNext()) {
-                        final String line = iterator.next();
-                        final int i = line.indexOf('=');
-                        if (i < 0) {
-                            throw new ProvisioningException("Failed to locate '=' character in " + line);
-                        }
-                        artifactVersions.put(line.substring(0, i), line.substring(i + 1));
-                    }
-                } catch (IOException e) {
-                    throw new ProvisioningException(Errors.readFile(artifactProps), e);
-                }
+            final Map<String, String> versions = ArtifactVersions.load(wfRes);
+            if(versions != null) {
+                artifactVersions = CollectionUtils.add(artifactVersions, versions);
             }
         }
-        return new MapPropertyResolver(artifactVersions);
+        return ArtifactVersions.merge(artifactVersions);
     }
 
-    private String toArtifactCoords(String str, PropertyResolver versionResolver) throws ProvisioningException {
-
-        String[] parts = str.split(":");
-        if(parts.length < 2) {
-            throw new IllegalArgumentException("Unexpected artifact coordinates format: " + str);
-        }
-        final String groupId = parts[0];
-        final String artifactId = parts[1];
-        String version = null;
-        String classifier = "";
-        String ext = "jar";
-        if(parts.length > 2) {
-            if(!parts[2].isEmpty()) {
-                version = parts[2];
-            }
-            if(parts.length > 3) {
-                classifier = parts[3];
-                if(parts.length > 4 && !parts[4].isEmpty()) {
-                    ext = parts[4];
-                    if (parts.length > 5) {
-                        throw new IllegalArgumentException("Unexpected artifact coordinates format: " + str);
-                    }
-                }
-            }
-        }
-
-        if(version != null) {
-            return groupId + ':' + artifactId + ':' + ext + ':' + classifier + ':' + version;
-        }
-
-        final String resolvedStr = versionResolver.resolveProperty(groupId + ':' + artifactId);
-        if (resolvedStr == null) {
+    private String toArtifactCoords(String str, Map<String, String> artifactVersions) throws ProvisioningException {
+        final String[] coords = Utils.resolveCoords(artifactVersions, str, true);
+        if (coords == null) {
             throw new ProvisioningException("Failed to resolve the version of " + str);
         }
-
-        parts = resolvedStr.split(":");
-        if(parts.length < 3) {
-            throw new ProvisioningException("Failed to resolve version for artifact: " + resolvedStr);
-        }
-        return groupId + ':' + artifactId + ':' + ext + ':' + classifier + ':' + parts[2];
+        return coords[0] + ':' + coords[1] + ':' + (coords[4] == null ? "jar" : coords[4]) + ':'
+                + (coords[3] == null ? "" : coords[3]) + ':' + coords[2];
     }
 }
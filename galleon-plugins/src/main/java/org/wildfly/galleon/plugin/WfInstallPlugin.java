@@ -18,6 +18,7 @@ package org.wildfly.galleon.plugin;
 
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -36,35 +37,41 @@ import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
-import nu.xom.Attribute;
-import nu.xom.Builder;
-import nu.xom.Document;
-import nu.xom.Element;
-import nu.xom.Elements;
-import nu.xom.ParsingException;
-import nu.xom.Serializer;
 
+import org.jboss.galleon.Constants;
 import org.jboss.galleon.Errors;
 import org.jboss.galleon.MessageWriter;
 import org.jboss.galleon.ProvisioningException;
@@ -88,11 +95,13 @@ import org.jboss.galleon.universe.maven.MavenArtifact;
 import org.jboss.galleon.universe.maven.repo.MavenRepoManager;
 import org.jboss.galleon.util.IoUtils;
 import org.jboss.galleon.util.CollectionUtils;
-import org.jboss.galleon.util.ZipUtils;
 import org.wildfly.galleon.plugin.config.CopyArtifact;
 import org.wildfly.galleon.plugin.config.CopyPath;
 import org.wildfly.galleon.plugin.config.DeletePath;
 import org.wildfly.galleon.plugin.config.ExampleFpConfigs;
+import org.wildfly.galleon.plugin.config.FilePermission;
+import org.wildfly.galleon.plugin.config.FilePermissions;
+import org.wildfly.galleon.plugin.config.FilePermissionsMatcher;
 import org.wildfly.galleon.plugin.config.XslTransform;
 import org.wildfly.galleon.plugin.server.CliScriptRunner;
 
@@ -105,6 +114,8 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
     private static final String CONFIG_GEN_METHOD = "generate";
     private static final String CONFIG_GEN_PATH = "wildfly/wildfly-config-gen.jar";
     private static final String CONFIG_GEN_CLASS = "org.wildfly.galleon.plugin.config.generator.WfConfigGenerator";
+    private static final String CONFIG_GEN_CP_JBOSS_MODULES = "org.jboss.modules:jboss-modules";
+    private static final String CONFIG_GEN_CP_CLI_CLIENT = "org.wildfly.core:wildfly-cli::client";
 
     private static final ProvisioningOption OPTION_MVN_DIST = ProvisioningOption.builder("jboss-maven-dist")
             .setBooleanValueSet()
@@ -113,26 +124,56 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
     private static final ProvisioningOption OPTION_FORK_EMBEDDED = ProvisioningOption.builder("jboss-fork-embedded")
             .setBooleanValueSet()
             .build();
+    private static final ProvisioningOption OPTION_MAX_THREADS = ProvisioningOption.builder("jboss-max-threads")
+            .setPersistent(false)
+            .build();
+    private static final ProvisioningOption OPTION_JANDEX_CACHE = ProvisioningOption.builder("jboss-jandex-cache")
+            .setPersistent(false)
+            .build();
+    private static final ProvisioningOption OPTION_JANDEX_CACHE_SIZE = ProvisioningOption.builder("jboss-jandex-cache-size")
+            .setPersistent(false)
+            .build();
+    private static final long DEFAULT_JANDEX_CACHE_SIZE_MB = 512;
+    private static final ProvisioningOption OPTION_LINK_ARTIFACTS = ProvisioningOption.builder("jboss-link-artifacts")
+            .setBooleanValueSet()
+            .setPersistent(false)
+            .build();
+    private static final ProvisioningOption OPTION_INCREMENTAL_MODULES = ProvisioningOption.builder("jboss-incremental-modules")
+            .setBooleanValueSet()
+            .build();
+    private static final ProvisioningOption OPTION_PROVISIONING_REPORT = ProvisioningOption.builder("jboss-provisioning-report")
+            .setPersistent(false)
+            .build();
+    private static final String PROVISIONING_REPORT_JSON = "wildfly-provisioning-report.json";
 
     private ProvisioningRuntime runtime;
     private MessageWriter log;
 
-    private Map<String, String> mergedArtifactVersions = new HashMap<>();
+    private Map<String, String> mergedArtifactVersions = Collections.emptyMap();
     private Map<ProducerSpec, Map<String, String>> fpArtifactVersions = new HashMap<>();
     private Map<ProducerSpec, Map<String, String>> fpTasksProps = Collections.emptyMap();
     private Map<String, String> mergedTaskProps = new HashMap<>();
     private PropertyResolver mergedTaskPropsResolver;
 
     private boolean thinServer;
+    private volatile boolean linkArtifacts;
+    private final Set<Path> linkedArtifacts = ConcurrentHashMap.newKeySet();
     private Set<String> schemaGroups = Collections.emptySet();
 
     private List<WildFlyPackageTask> finalizingTasks = Collections.emptyList();
     private List<PackageRuntime> finalizingTasksPkgs = Collections.emptyList();
+    // the tasks that only register their state with the plugin are executed concurrently,
+    // the registered state is applied in the order the tasks were scheduled in
+    private final Map<WildFlyPackageTask, Integer> taskOrder = new IdentityHashMap<>();
+    private final AtomicInteger nextTaskOrder = new AtomicInteger();
+    private final Map<Integer, FilePermissions> processingPermissions = new ConcurrentSkipListMap<>();
+    private final Map<Integer, FilePermissions> finalizingPermissions = new ConcurrentSkipListMap<>();
 
     private DocumentBuilderFactory docBuilderFactory;
     private TransformerFactory xsltFactory;
-    private Map<String, Transformer> xslTransformers = Collections.emptyMap();
+    private final Map<String, Templates> xslTemplates = new ConcurrentHashMap<>();
 
+    private final Map<Integer, Map.Entry<FPID, ExampleFpConfigs>> registeredExampleConfigs = new ConcurrentSkipListMap<>();
     private Map<FPID, ExampleFpConfigs> exampleConfigs = Collections.emptyMap();
 
     private ProgressTracker<PackageRuntime> pkgProgressTracker;
@@ -141,9 +182,23 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
 
     private Map<Path, PackageRuntime> jbossModules = new LinkedHashMap<>();
 
+    private ParallelExecutor executor;
+    private final Map<String, Path> resolvedArtifacts = new ConcurrentHashMap<>();
+    private final Map<String, ProvisioningException> failedArtifacts = new ConcurrentHashMap<>();
+    private final ArtifactCoordsCache artifactCoords = new ArtifactCoordsCache();
+    private ModuleFingerprints installedModuleFingerprints;
+    private ModuleFingerprints moduleFingerprints;
+    private final Map<Path, String> artifactHashes = new ConcurrentHashMap<>();
+    private Map<Path, WildFlyPackageTasks> loadedTasks = Collections.emptyMap();
+    private final Map<Path, ModuleDescriptor> moduleDescriptors = new ConcurrentHashMap<>();
+    private JandexIndexCache jandexCache;
+    private final SchemaManifest schemaManifest = new SchemaManifest();
+
     @Override
     protected List<ProvisioningOption> initPluginOptions() {
-        return Arrays.asList(OPTION_MVN_DIST, OPTION_DUMP_CONFIG_SCRIPTS, OPTION_FORK_EMBEDDED);
+        return Arrays.asList(OPTION_MVN_DIST, OPTION_DUMP_CONFIG_SCRIPTS, OPTION_FORK_EMBEDDED, OPTION_MAX_THREADS,
+                OPTION_JANDEX_CACHE, OPTION_JANDEX_CACHE_SIZE, OPTION_LINK_ARTIFACTS, OPTION_INCREMENTAL_MODULES,
+                OPTION_PROVISIONING_REPORT);
     }
 
     public ProvisioningRuntime getRuntime() {
@@ -175,19 +230,139 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         log.verbose("WildFly Galleon Installation Plugin");
 
         thinServer = runtime.isOptionSet(OPTION_MVN_DIST);
+        linkArtifacts = !thinServer && isTrue(runtime, OPTION_LINK_ARTIFACTS);
         maven = (MavenRepoManager) runtime.getArtifactResolver(MavenRepoManager.REPOSITORY_ID);
 
+        jandexCache = initJandexCache(runtime);
+        final Path reportPath = getProvisioningReportPath(runtime);
+        final ProvisioningReport report = reportPath == null ? null : new ProvisioningReport();
+        final ProvisioningEvent.Listener previousListener = report == null ? null : ProvisioningEvent.setListener(report);
+        executor = new ParallelExecutor(getMaxThreads(runtime));
+        try {
+            doPostInstall(runtime);
+        } finally {
+            executor.close();
+            executor = null;
+            if(report != null) {
+                ProvisioningEvent.setListener(previousListener);
+            }
+        }
+        if(report != null) {
+            writeProvisioningReport(report, reportPath);
+        }
+
+        if(startTime > 0) {
+            log.print(Errors.tookTime("Overall WildFly Galleon Plugin", startTime));
+        }
+    }
+
+    /**
+     * The path of the provisioning report or null, if the report is disabled. The value of the option is either
+     * {@code true} (or empty) for the default location in the installation, {@code false} or a file path,
+     * which, if relative, is resolved against the installation directory. Relative paths inside the installation
+     * are resolved against the staged directory, so that the report is not lost when the staged directory replaces
+     * the installation.
+     */
+    private static Path getProvisioningReportPath(ProvisioningRuntime runtime) throws ProvisioningException {
+        if(!runtime.isOptionSet(OPTION_PROVISIONING_REPORT)) {
+            return null;
+        }
+        final String value = runtime.getOptionValue(OPTION_PROVISIONING_REPORT);
+        final String path = value == null ? "" : value.trim();
+        if(path.isEmpty() || Boolean.TRUE.toString().equalsIgnoreCase(path)) {
+            return runtime.getStagedDir().resolve(Constants.PROVISIONED_STATE_DIR).resolve(PROVISIONING_REPORT_JSON);
+        }
+        if(Boolean.FALSE.toString().equalsIgnoreCase(path)) {
+            return null;
+        }
+        final Path relative = Paths.get(path).normalize();
+        if(relative.isAbsolute()) {
+            return relative;
+        }
+        return relative.startsWith("..") ? runtime.getInstallationHome().resolve(relative).normalize() : runtime.getStagedDir().resolve(relative);
+    }
+
+    private void writeProvisioningReport(ProvisioningReport report, Path target) throws ProvisioningException {
+        try {
+            report.write(target);
+        } catch (IOException e) {
+            throw new ProvisioningException(Errors.writeFile(target), e);
+        }
+        log.verbose("Wrote provisioning report to %s", target);
+    }
+
+    private static boolean isTrue(ProvisioningRuntime runtime, ProvisioningOption option) throws ProvisioningException {
+        if(!runtime.isOptionSet(option)) {
+            return false;
+        }
+        final String value = runtime.getOptionValue(option);
+        return value == null || Boolean.parseBoolean(value);
+    }
+
+    private static int getMaxThreads(ProvisioningRuntime runtime) throws ProvisioningException {
+        if(!runtime.isOptionSet(OPTION_MAX_THREADS)) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        final String value = runtime.getOptionValue(OPTION_MAX_THREADS);
+        if(value == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        final int maxThreads;
+        try {
+            maxThreads = Integer.parseInt(value.trim());
+        } catch(NumberFormatException e) {
+            throw new ProvisioningException("Value of " + OPTION_MAX_THREADS.getName() + " is not a number: " + value, e);
+        }
+        if(maxThreads < 1) {
+            throw new ProvisioningException("Value of " + OPTION_MAX_THREADS.getName() + " must be a positive number: " + value);
+        }
+        return maxThreads;
+    }
+
+    private JandexIndexCache initJandexCache(ProvisioningRuntime runtime) throws ProvisioningException {
+        if(!runtime.isOptionSet(OPTION_JANDEX_CACHE)) {
+            return null;
+        }
+        final String dir = runtime.getOptionValue(OPTION_JANDEX_CACHE);
+        if(dir == null || dir.trim().isEmpty()) {
+            throw new ProvisioningException("Option " + OPTION_JANDEX_CACHE.getName() + " requires a directory path as its value");
+        }
+        long maxSizeMb = DEFAULT_JANDEX_CACHE_SIZE_MB;
+        if(runtime.isOptionSet(OPTION_JANDEX_CACHE_SIZE)) {
+            final String value = runtime.getOptionValue(OPTION_JANDEX_CACHE_SIZE);
+            if(value != null) {
+                try {
+                    maxSizeMb = Long.parseLong(value.trim());
+                } catch(NumberFormatException e) {
+                    throw new ProvisioningException("Value of " + OPTION_JANDEX_CACHE_SIZE.getName() + " is not a number: " + value, e);
+                }
+                if(maxSizeMb < 1) {
+                    throw new ProvisioningException("Value of " + OPTION_JANDEX_CACHE_SIZE.getName() + " must be a positive number: " + value);
+                }
+            }
+        }
+        final Path cacheDir = Paths.get(dir.trim());
+        try {
+            return new JandexIndexCache(cacheDir, maxSizeMb * 1024 * 1024, log);
+        } catch (IOException e) {
+            throw new ProvisioningException(Errors.mkdirs(cacheDir), e);
+        }
+    }
+
+    private void doPostInstall(ProvisioningRuntime runtime) throws ProvisioningException {
+        ProvisioningEvent phase = beginPhase("properties");
+        List<Map<String, String>> artifactVersions = Collections.emptyList();
+        final ArtifactIndex artifactIndex = new ArtifactIndex();
         for(FeaturePackRuntime fp : runtime.getFeaturePacks()) {
             final Path wfRes = fp.getResource(WfConstants.WILDFLY);
             if(!Files.exists(wfRes)) {
                 continue;
             }
 
-            final Path artifactProps = wfRes.resolve(WfConstants.ARTIFACT_VERSIONS_PROPS);
-            if(Files.exists(artifactProps)) {
-                final Map<String, String> versionProps = Utils.readProperties(artifactProps);
+            final Map<String, String> versionProps = ArtifactVersions.load(wfRes);
+            if(versionProps != null) {
                 fpArtifactVersions.put(fp.getFPID().getProducer(), versionProps);
-                mergedArtifactVersions.putAll(versionProps);
+                artifactVersions = CollectionUtils.add(artifactVersions, versionProps);
             }
 
             final Path tasksPropsPath = wfRes.resolve(WfConstants.WILDFLY_TASKS_PROPS);
@@ -197,6 +372,16 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
                 mergedTaskProps.putAll(fpProps);
             }
 
+            final Path fpArtifactIndexPath = wfRes.resolve(WfConstants.ARTIFACT_INDEX);
+            try {
+                final ArtifactIndex fpArtifactIndex = ArtifactIndex.load(fpArtifactIndexPath);
+                if(fpArtifactIndex != null) {
+                    artifactIndex.addAll(fp.getFPID().toString(), fpArtifactIndex, fp::containsPackage);
+                }
+            } catch (IOException e) {
+                throw new ProvisioningException(Errors.readFile(fpArtifactIndexPath), e);
+            }
+
             if(fp.containsPackage(WfConstants.DOCS_SCHEMA)) {
                 final Path schemaGroupsTxt = fp.getPackage(WfConstants.DOCS_SCHEMA).getResource(
                         WfConstants.PM, WfConstants.WILDFLY, WfConstants.SCHEMA_GROUPS_TXT);
@@ -209,9 +394,23 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
                 } catch (IOException e) {
                     throw new ProvisioningException(Errors.readFile(schemaGroupsTxt), e);
                 }
+                final Path schemaManifestTxt = schemaGroupsTxt.resolveSibling(WfConstants.SCHEMA_MANIFEST);
+                try {
+                    final SchemaManifest fpSchemaManifest = SchemaManifest.load(schemaManifestTxt);
+                    if(fpSchemaManifest != null) {
+                        schemaManifest.putAll(fpSchemaManifest);
+                    }
+                } catch (IOException e) {
+                    throw new ProvisioningException(Errors.readFile(schemaManifestTxt), e);
+                }
             }
         }
+        mergedArtifactVersions = ArtifactVersions.merge(artifactVersions);
         mergedTaskPropsResolver = new MapPropertyResolver(mergedTaskProps);
+        if(!artifactIndex.isEmpty()) {
+            storeArtifactIndex(artifactIndex);
+        }
+        phase.commit();
 
         final ProvisioningLayoutFactory layoutFactory = runtime.getLayout().getFactory();
         pkgProgressTracker = layoutFactory.getProgressTracker(ProvisioningLayoutFactory.TRACK_PACKAGES);
@@ -220,54 +419,165 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
             pkgsTotal += fp.getPackageNames().size();
         }
         pkgProgressTracker.starting(pkgsTotal);
+        phase = beginPhase("package-scheduling");
+        final TaskScheduler processingTasks = new TaskScheduler();
         for(FeaturePackRuntime fp : runtime.getFeaturePacks()) {
-            processPackages(fp);
+            processPackages(fp, processingTasks);
         }
+        phase.commit();
+
+        // the module templates to install are known once the packages have been scheduled
+        phase = beginPhase("artifact-resolution");
+        preResolveArtifacts();
+        phase.commit();
+
+        phase = beginPhase("packages");
+        processingTasks.execute(executor);
         pkgProgressTracker.complete();
+        phase.commit();
+        if(!processingPermissions.isEmpty()) {
+            phase = beginPhase("file-permissions");
+            applyFilePermissions(processingPermissions.values());
+            phase.commit();
+        }
         if (!jbossModules.isEmpty()) {
-            final ProgressTracker<PackageRuntime> modulesTracker = layoutFactory.getProgressTracker("JBMODULES");
-            modulesTracker.starting(jbossModules.size());
-            for (Map.Entry<Path, PackageRuntime> entry : jbossModules.entrySet()) {
-                final PackageRuntime pkg = entry.getValue();
-                modulesTracker.processing(pkg);
-                try {
-                    processModuleTemplate(pkg, entry.getKey());
-                } catch (IOException e) {
-                    throw new ProvisioningException("Failed to process JBoss module XML template for feature-pack "
-                            + pkg.getFeaturePackRuntime().getFPID() + " package " + pkg.getName(), e);
-                }
-                modulesTracker.processed(pkg);
+            phase = beginPhase("module-templates");
+            final boolean incremental = isTrue(runtime, OPTION_INCREMENTAL_MODULES);
+            if(incremental) {
+                initModuleFingerprints();
+            }
+            processModuleTemplates(layoutFactory.getProgressTracker("JBMODULES"));
+            if(incremental) {
+                storeModuleFingerprints();
             }
-            modulesTracker.complete();
+            phase.commit();
         }
 
         final Path layersConf = runtime.getStagedDir().resolve(WfConstants.MODULES).resolve(WfConstants.LAYERS_CONF);
         if(Files.exists(layersConf)) {
+            phase = beginPhase("layers-conf");
             mergeLayerConfs(runtime);
+            phase.commit();
         }
 
+        phase = beginPhase("config-generation");
         generateConfigs(runtime);
+        phase.commit();
 
         // TODO this needs to be revisited
         for(FeaturePackRuntime fp : runtime.getFeaturePacks()) {
             final Path finalizeCli = fp.getResource(WfConstants.WILDFLY, WfConstants.SCRIPTS, "finalize.cli");
             if(Files.exists(finalizeCli)) {
+                phase = beginPhase("finalize-cli");
                 CliScriptRunner.runCliScript(runtime.getStagedDir(), finalizeCli, log);
+                phase.commit();
             }
         }
 
         if(!finalizingTasks.isEmpty()) {
+            phase = beginPhase("finalizing-tasks");
+            final TaskScheduler scheduler = new TaskScheduler();
             for(int i = 0; i < finalizingTasks.size(); ++i) {
-                finalizingTasks.get(i).execute(this, finalizingTasksPkgs.get(i));
+                final WildFlyPackageTask task = finalizingTasks.get(i);
+                final PackageRuntime pkg = finalizingTasksPkgs.get(i);
+                scheduler.add(() -> executeTask(task, pkg), task.getInputPaths(), task.getOutputPaths());
             }
+            scheduler.execute(executor);
+            phase.commit();
+        }
+        if(!finalizingPermissions.isEmpty()) {
+            phase = beginPhase("file-permissions");
+            applyFilePermissions(finalizingPermissions.values());
+            phase.commit();
         }
 
-        if(!exampleConfigs.isEmpty()) {
+        if(!registeredExampleConfigs.isEmpty()) {
+            phase = beginPhase("example-configs");
             provisionExampleConfigs();
+            phase.commit();
         }
+    }
 
-        if(startTime > 0) {
-            log.print(Errors.tookTime("Overall WildFly Galleon Plugin", startTime));
+    private static ProvisioningEvent beginPhase(String name) {
+        return ProvisioningEvent.begin(ProvisioningEvent.Type.PHASE).set("phase", name);
+    }
+
+    private void executeTask(WildFlyPackageTask task, PackageRuntime pkg) throws ProvisioningException {
+        final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.PACKAGE_TASK)
+                .set("featurePack", pkg.getFeaturePackRuntime().getFPID())
+                .set("package", pkg.getName())
+                .set("task", task.getClass().getSimpleName());
+        task.execute(this, pkg);
+        event.commit();
+    }
+
+    private void processModuleTemplates(ProgressTracker<PackageRuntime> modulesTracker) throws ProvisioningException {
+        modulesTracker.starting(jbossModules.size());
+        final List<ParallelExecutor.Task> tasks = new ArrayList<>(jbossModules.size());
+        // the modules are processed in parallel, their schemas are extracted afterwards in the order of the modules
+        final List<List<MavenArtifact>> schemaArtifacts = new ArrayList<>(jbossModules.size());
+        for (Map.Entry<Path, PackageRuntime> entry : jbossModules.entrySet()) {
+            final PackageRuntime pkg = entry.getValue();
+            final List<MavenArtifact> moduleSchemaArtifacts = new ArrayList<>();
+            schemaArtifacts.add(moduleSchemaArtifacts);
+            tasks.add(() -> {
+                synchronized (modulesTracker) {
+                    modulesTracker.processing(pkg);
+                }
+                final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.MODULE_TEMPLATE)
+                        .set("featurePack", pkg.getFeaturePackRuntime().getFPID())
+                        .set("package", pkg.getName())
+                        .set("module", entry.getKey());
+                try {
+                    processModuleTemplate(pkg, entry.getKey(), moduleSchemaArtifacts);
+                } catch (IOException e) {
+                    throw new ProvisioningException("Failed to process JBoss module XML template for feature-pack "
+                            + pkg.getFeaturePackRuntime().getFPID() + " package " + pkg.getName(), e);
+                }
+                event.commit();
+                synchronized (modulesTracker) {
+                    modulesTracker.processed(pkg);
+                }
+            });
+        }
+        executor.execute(tasks);
+        final List<MavenArtifact> orderedSchemaArtifacts = new ArrayList<>();
+        for (List<MavenArtifact> moduleSchemaArtifacts : schemaArtifacts) {
+            orderedSchemaArtifacts.addAll(moduleSchemaArtifacts);
+        }
+        try {
+            extractSchemas(orderedSchemaArtifacts);
+        } catch (IOException e) {
+            throw new ProvisioningException("Failed to extract the schemas of the module artifacts", e);
+        }
+        modulesTracker.complete();
+    }
+
+    private void initModuleFingerprints() throws ProvisioningException {
+        final Path manifest = runtime.getInstallationHome().resolve(Constants.PROVISIONED_STATE_DIR).resolve(ModuleFingerprints.MANIFEST);
+        try {
+            installedModuleFingerprints = ModuleFingerprints.load(manifest);
+        } catch (IOException e) {
+            throw new ProvisioningException(Errors.readFile(manifest), e);
+        }
+        moduleFingerprints = new ModuleFingerprints();
+    }
+
+    private void storeModuleFingerprints() throws ProvisioningException {
+        final Path manifest = runtime.getStagedDir().resolve(Constants.PROVISIONED_STATE_DIR).resolve(ModuleFingerprints.MANIFEST);
+        try {
+            moduleFingerprints.store(manifest);
+        } catch (IOException e) {
+            throw new ProvisioningException(Errors.writeFile(manifest), e);
+        }
+    }
+
+    private void storeArtifactIndex(ArtifactIndex artifactIndex) throws ProvisioningException {
+        final Path file = runtime.getStagedDir().resolve(Constants.PROVISIONED_STATE_DIR).resolve(ArtifactIndex.INSTALLED);
+        try {
+            artifactIndex.store(file);
+        } catch (IOException e) {
+            throw new ProvisioningException(Errors.writeFile(file), e);
         }
     }
 
@@ -280,6 +590,14 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
     }
 
     private void provisionExampleConfigs() throws ProvisioningException {
+        for(Map.Entry<FPID, ExampleFpConfigs> registered : registeredExampleConfigs.values()) {
+            final ExampleFpConfigs existingConfigs = exampleConfigs.get(registered.getKey());
+            if(existingConfigs == null) {
+                exampleConfigs = CollectionUtils.put(exampleConfigs, registered.getKey(), registered.getValue());
+            } else {
+                existingConfigs.addAll(registered.getValue());
+            }
+        }
 
         final Path examplesTmp = runtime.getTmpPath("example-configs");
         final ProvisioningManager pm = ProvisioningManager.builder()
@@ -367,11 +685,11 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         final URL[] cp = new URL[3];
         try {
             cp[0] = configGenJar.toUri().toURL();
-            MavenArtifact artifact = Utils.toArtifactCoords(mergedArtifactVersions, "org.jboss.modules:jboss-modules", false);
-            maven.resolve(artifact);
+            MavenArtifact artifact = artifactCoords.toArtifactCoords(mergedArtifactVersions, CONFIG_GEN_CP_JBOSS_MODULES, false);
+            resolveArtifact(artifact);
             cp[1] = artifact.getPath().toUri().toURL();
-            artifact = Utils.toArtifactCoords(mergedArtifactVersions, "org.wildfly.core:wildfly-cli::client", false);
-            maven.resolve(artifact);
+            artifact = artifactCoords.toArtifactCoords(mergedArtifactVersions, CONFIG_GEN_CP_CLI_CLIENT, false);
+            resolveArtifact(artifact);
             cp[2] = artifact.getPath().toUri().toURL();
         } catch (IOException e) {
             throw new ProvisioningException("Failed to init classpath for " + runtime.getStagedDir(), e);
@@ -418,27 +736,174 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         }
     }
 
-    private void processPackages(final FeaturePackRuntime fp) throws ProvisioningException {
+    private WildFlyPackageTasks loadTasks(Path tasksXml) throws ProvisioningException {
+        WildFlyPackageTasks tasks = loadedTasks.get(tasksXml);
+        if(tasks == null) {
+            tasks = WildFlyPackageTasks.load(tasksXml);
+            loadedTasks = CollectionUtils.put(loadedTasks, tasksXml, tasks);
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the parsed module template. Each template is parsed once per provisioning.
+     */
+    private ModuleDescriptor getModuleDescriptor(Path moduleXml) throws IOException {
+        ModuleDescriptor descriptor = moduleDescriptors.get(moduleXml);
+        if(descriptor == null) {
+            descriptor = ModuleDescriptor.parse(moduleXml);
+            moduleDescriptors.put(moduleXml, descriptor);
+        }
+        return descriptor;
+    }
+
+    /**
+     * Collects the coordinates of the artifacts referenced from the module templates that are going to be installed
+     * (i.e. not overridden by another package), the copy-artifact tasks and the config generator classpath
+     * and resolves them concurrently before the packages are processed.
+     * Artifacts that fail to resolve at this point are not reported, the failure is recorded and reported
+     * when (and if) they are actually needed, without another attempt to resolve them.
+     */
+    private void preResolveArtifacts() throws ProvisioningException {
+        final Map<String, MavenArtifact> artifacts = new LinkedHashMap<>();
+        for(Map.Entry<Path, PackageRuntime> entry : jbossModules.entrySet()) {
+            final PackageRuntime pkg = entry.getValue();
+            final Map<String, String> versionProps = fpArtifactVersions.get(pkg.getFeaturePackRuntime().getFPID().getProducer());
+            if(versionProps == null) {
+                continue;
+            }
+            final Path moduleTemplate = pkg.getResource(WfConstants.PM, WfConstants.WILDFLY, WfConstants.MODULE).resolve(entry.getKey());
+            final ModuleDescriptor descriptor;
+            try {
+                descriptor = getModuleDescriptor(moduleTemplate);
+            } catch (IOException e) {
+                throw new ProvisioningException(Errors.parseXml(moduleTemplate), e);
+            }
+            for(ModuleDescriptor.Artifact moduleArtifact : descriptor.getArtifacts()) {
+                final String coordsStr = getModuleArtifactCoords(versionProps, moduleArtifact);
+                if(coordsStr != null) {
+                    addArtifact(versionProps, coordsStr, artifacts);
+                }
+            }
+        }
+        for(FeaturePackRuntime fp : runtime.getFeaturePacks()) {
+            final Map<String, String> versionProps = fpArtifactVersions.get(fp.getFPID().getProducer());
+            for(PackageRuntime pkg : fp.getPackages()) {
+                final Path tasksXml = pkg.getResource(WfConstants.PM, WfConstants.WILDFLY, WfConstants.TASKS_XML);
+                if(Files.exists(tasksXml)) {
+                    for(WildFlyPackageTask task : loadTasks(tasksXml).getTasks()) {
+                        if(!(task instanceof CopyArtifact)) {
+                            continue;
+                        }
+                        final CopyArtifact copyArtifact = (CopyArtifact) task;
+                        addArtifact(copyArtifact.isFeaturePackVersion() ? versionProps : mergedArtifactVersions,
+                                copyArtifact.getArtifact(), artifacts);
+                    }
+                }
+            }
+        }
+        if(runtime.hasConfigs()) {
+            addArtifact(mergedArtifactVersions, CONFIG_GEN_CP_JBOSS_MODULES, artifacts);
+            addArtifact(mergedArtifactVersions, CONFIG_GEN_CP_CLI_CLIENT, artifacts);
+        }
+        if(artifacts.isEmpty()) {
+            return;
+        }
+        log.verbose("Resolving %s artifacts", artifacts.size());
+        final List<ParallelExecutor.Task> tasks = new ArrayList<>(artifacts.size());
+        for(MavenArtifact artifact : artifacts.values()) {
+            tasks.add(() -> {
+                try {
+                    resolveArtifact(artifact);
+                } catch(ProvisioningException e) {
+                    if(log.isVerboseEnabled()) {
+                        log.verbose("Failed to resolve %s: %s", artifact, e.getLocalizedMessage());
+                    }
+                }
+            });
+        }
+        executor.execute(tasks);
+    }
+
+    private void addArtifact(Map<String, String> versionProps, String coordsStr, Map<String, MavenArtifact> artifacts) {
+        if(versionProps == null) {
+            return;
+        }
+        final MavenArtifact artifact;
+        try {
+            artifact = artifactCoords.toArtifactCoords(versionProps, coordsStr, true);
+        } catch (ProvisioningException | IllegalArgumentException e) {
+            // will be reported when the artifact is actually needed
+            return;
+        }
+        if(artifact != null) {
+            artifacts.putIfAbsent(getArtifactKey(artifact), artifact);
+        }
+    }
+
+    private static String getArtifactKey(MavenArtifact artifact) {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(artifact.getGroupId()).append(':')
+        .append(artifact.getArtifactId()).append(':')
+        .append(artifact.getVersion()).append(':')
+        .append(artifact.getClassifier()).append(':')
+        .append(artifact.getExtension());
+        return buf.toString();
+    }
+
+    /**
+     * Resolves the artifact unless it has already been resolved during this provisioning.
+     * An artifact that failed to resolve is not resolved again, the original failure is thrown instead.
+     */
+    private void resolveArtifact(MavenArtifact artifact) throws ProvisioningException {
+        final String key = getArtifactKey(artifact);
+        final Path path = resolvedArtifacts.get(key);
+        if(path != null) {
+            artifact.setPath(path);
+            return;
+        }
+        final ProvisioningException failure = failedArtifacts.get(key);
+        if(failure != null) {
+            throw failure;
+        }
+        final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.ARTIFACT_RESOLUTION).set("artifact", key);
+        try {
+            maven.resolve(artifact);
+        } catch(ProvisioningException e) {
+            failedArtifacts.put(key, e);
+            throw e;
+        }
+        resolvedArtifacts.put(key, artifact.getPath());
+        event.set("bytes", artifact.getPath().toFile().length()).commit();
+    }
+
+    /**
+     * Schedules the processing of the packages of the feature-pack. The directories of the modules
+     * are created right away, the copying of the module resources, the processing phase tasks and
+     * the creation of the directories the packages ask for are added to the scheduler.
+     */
+    private void processPackages(final FeaturePackRuntime fp, TaskScheduler scheduler) throws ProvisioningException {
         log.verbose("Processing %s packages", fp.getFPID());
         for(PackageRuntime pkg : fp.getPackages()) {
-            pkgProgressTracker.processing(pkg);
+            final PackageProgress progress = new PackageProgress(pkg);
             final Path pmWfDir = pkg.getResource(WfConstants.PM, WfConstants.WILDFLY);
             if(!Files.exists(pmWfDir)) {
-                pkgProgressTracker.processed(pkg);
+                progress.scheduled();
                 continue;
             }
             final Path moduleDir = pmWfDir.resolve(WfConstants.MODULE);
             if(Files.exists(moduleDir)) {
-                processModules(pkg, moduleDir);
+                processModules(pkg, moduleDir, scheduler, progress);
             }
             final Path tasksXml = pmWfDir.resolve(WfConstants.TASKS_XML);
             if (Files.exists(tasksXml)) {
-                final WildFlyPackageTasks pkgTasks = WildFlyPackageTasks.load(tasksXml);
+                final WildFlyPackageTasks pkgTasks = loadTasks(tasksXml);
                 if (pkgTasks.hasTasks()) {
-                    log.verbose("Processing %s package %s tasks", fp.getFPID(), pkg.getName());
+                    log.verbose("Scheduling %s package %s tasks", fp.getFPID(), pkg.getName());
                     for (WildFlyPackageTask task : pkgTasks.getTasks()) {
+                        scheduled(task);
                         if (task.getPhase() == WildFlyPackageTask.Phase.PROCESSING) {
-                            task.execute(this, pkg);
+                            scheduler.add(progress.track(() -> executeTask(task, pkg)), task.getInputPaths(), task.getOutputPaths());
                         } else {
                             finalizingTasks = CollectionUtils.add(finalizingTasks, task);
                             finalizingTasksPkgs = CollectionUtils.add(finalizingTasksPkgs, pkg);
@@ -446,10 +911,49 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
                     }
                 }
                 if (pkgTasks.hasMkDirs()) {
-                    mkdirs(pkgTasks, this.runtime.getStagedDir());
+                    scheduler.add(progress.track(() -> mkdirs(pkgTasks, this.runtime.getStagedDir())), Collections.emptyList(), pkgTasks.getMkDirs());
+                }
+            }
+            progress.scheduled();
+        }
+    }
+
+    /**
+     * Reports the progress of a package whose processing consists of several scheduled tasks.
+     */
+    private class PackageProgress {
+
+        private final PackageRuntime pkg;
+        private int pending;
+        private boolean started;
+
+        PackageProgress(PackageRuntime pkg) {
+            this.pkg = pkg;
+        }
+
+        ParallelExecutor.Task track(ParallelExecutor.Task task) {
+            ++pending;
+            return () -> {
+                synchronized (pkgProgressTracker) {
+                    if (!started) {
+                        started = true;
+                        pkgProgressTracker.processing(pkg);
+                    }
                 }
+                task.execute();
+                synchronized (pkgProgressTracker) {
+                    if (--pending == 0) {
+                        pkgProgressTracker.processed(pkg);
+                    }
+                }
+            };
+        }
+
+        void scheduled() {
+            if (pending == 0) {
+                pkgProgressTracker.processing(pkg);
+                pkgProgressTracker.processed(pkg);
             }
-            pkgProgressTracker.processed(pkg);
         }
     }
 
@@ -465,8 +969,8 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         }
 
         try (InputStream srcInput = Files.newInputStream(src); OutputStream outStream = Files.newOutputStream(output)) {
-            final org.w3c.dom.Document document = getXmlDocumentBuilderFactory().newDocumentBuilder().parse(srcInput);
-            final Transformer transformer = getXslTransformer(xslt.getStylesheet());
+            final org.w3c.dom.Document document = newXmlDocumentBuilder().parse(srcInput);
+            final Transformer transformer = getXslTransformer(runtime.getStagedDir().resolve(xslt.getStylesheet()));
             if (xslt.hasParams()) {
                 for (Map.Entry<String, String> param : xslt.getParams().entrySet()) {
                     transformer.setParameter(param.getKey(), param.getValue());
@@ -489,56 +993,74 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         }
     }
 
-    private Transformer getXslTransformer(String stylesheet) throws ProvisioningException {
-        Transformer transformer = xslTransformers.get(stylesheet);
-        if(transformer != null) {
-            return transformer;
-        }
-        transformer = getXslTransformer(runtime.getStagedDir().resolve(stylesheet));
-        xslTransformers = CollectionUtils.put(xslTransformers, stylesheet, transformer);
-        return transformer;
-    }
-
-    public DocumentBuilderFactory getXmlDocumentBuilderFactory() {
+    public synchronized DocumentBuilderFactory getXmlDocumentBuilderFactory() {
         if(docBuilderFactory == null) {
             docBuilderFactory = DocumentBuilderFactory.newInstance();
         }
         return docBuilderFactory;
     }
 
+    /**
+     * Creates a new document builder. Since the factory is not thread-safe, tasks executed concurrently
+     * should use this method instead of creating the builders with the factory.
+     */
+    public synchronized DocumentBuilder newXmlDocumentBuilder() throws ParserConfigurationException {
+        return getXmlDocumentBuilderFactory().newDocumentBuilder();
+    }
+
+    /**
+     * Returns a new transformer for the stylesheet. Stylesheets are compiled once per distinct content,
+     * so that the same stylesheet shipped in different packages or feature-packs is compiled only once.
+     */
     public Transformer getXslTransformer(Path p) throws ProvisioningException {
         if(!Files.exists(p)) {
             throw new ProvisioningException(Errors.pathDoesNotExist(p));
         }
-        try (InputStream styleInput = Files.newInputStream(p)) {
-            final StreamSource stylesource = new StreamSource(styleInput);
-            if(xsltFactory == null) {
-                xsltFactory = TransformerFactory.newInstance();
+        try {
+            final byte[] content = Files.readAllBytes(p);
+            final String key = Utils.sha1(content);
+            Templates templates = xslTemplates.get(key);
+            if(templates == null) {
+                synchronized(xslTemplates) {
+                    templates = xslTemplates.get(key);
+                    if(templates == null) {
+                        if(xsltFactory == null) {
+                            xsltFactory = TransformerFactory.newInstance();
+                        }
+                        templates = xsltFactory.newTemplates(new StreamSource(new ByteArrayInputStream(content)));
+                        xslTemplates.put(key, templates);
+                    }
+                }
             }
-            return xsltFactory.newTransformer(stylesource);
+            return templates.newTransformer();
         } catch (Exception e) {
             throw new ProvisioningException("Failed to initialize a transformer for " + p, e);
         }
     }
 
-    private void processModules(PackageRuntime pkg, Path fpModuleDir) throws ProvisioningException {
+    private void processModules(PackageRuntime pkg, Path fpModuleDir, TaskScheduler scheduler, PackageProgress progress) throws ProvisioningException {
+        final Path stagedDir = runtime.getStagedDir();
+        final List<String> files = new ArrayList<>();
+        // the directories are created by the scheduled task, after the preceding tasks that delete them
+        final List<String> dirs = new ArrayList<>();
         try {
-            final Path stagedDir = runtime.getStagedDir();
-            if(!Files.exists(stagedDir)) {
-                Files.createDirectories(stagedDir);
-            }
             Files.walkFileTree(fpModuleDir, new SimpleFileVisitor<Path>() {
+                private boolean leaf;
                 @Override
                 public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
                     throws IOException {
-                    final Path targetDir = stagedDir.resolve(fpModuleDir.relativize(dir).toString());
-                    try {
-                        Files.copy(dir, targetDir);
-                    } catch (FileAlreadyExistsException e) {
-                         if (!Files.isDirectory(targetDir)) {
-                             throw e;
-                         }
+                    leaf = true;
+                    return FileVisitResult.CONTINUE;
+                }
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if (e != null) {
+                        throw e;
+                    }
+                    if (leaf && !dir.equals(fpModuleDir)) {
+                        dirs.add(fpModuleDir.relativize(dir).toString());
                     }
+                    leaf = false;
                     return FileVisitResult.CONTINUE;
                 }
                 @Override
@@ -554,7 +1076,7 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
                             }
                         }
                     } else {
-                        Files.copy(file, stagedDir.resolve(fpModuleDir.relativize(file).toString()), StandardCopyOption.REPLACE_EXISTING);
+                        files.add(fpModuleDir.relativize(file).toString());
                     }
                     return FileVisitResult.CONTINUE;
                 }
@@ -562,130 +1084,72 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         } catch (IOException e) {
             throw new ProvisioningException("Failed to process modules from package " + pkg.getName() + " from feature-pack " + pkg.getFeaturePackRuntime().getFPID(), e);
         }
+        if(files.isEmpty() && dirs.isEmpty()) {
+            return;
+        }
+        // creating a leaf directory creates its parents, which are shared with other module packages,
+        // so only the leaves are declared as outputs to keep the packages from being serialized
+        final List<String> outputs = new ArrayList<>(dirs.size() + files.size());
+        outputs.addAll(dirs);
+        outputs.addAll(files);
+        scheduler.add(progress.track(() -> {
+            try {
+                Files.createDirectories(stagedDir);
+                for(String dir : dirs) {
+                    final Path targetDir = stagedDir.resolve(dir);
+                    if(!Files.isDirectory(targetDir)) {
+                        Files.createDirectories(targetDir);
+                    }
+                }
+                for(String file : files) {
+                    Files.copy(fpModuleDir.resolve(file), stagedDir.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                throw new ProvisioningException("Failed to process modules from package " + pkg.getName() + " from feature-pack " + pkg.getFeaturePackRuntime().getFPID(), e);
+            }
+        }), Collections.emptyList(), outputs);
     }
 
-    private void processModuleTemplate(PackageRuntime pkg, Path moduleXmlRelativePath) throws ProvisioningException, IOException {
+    /**
+     * Generates the module from its template. The artifacts of the schema groups referenced by the module
+     * are added to the list for their schemas to be extracted.
+     */
+    private void processModuleTemplate(PackageRuntime pkg, Path moduleXmlRelativePath, List<MavenArtifact> schemaArtifacts)
+            throws ProvisioningException, IOException {
         final Path moduleTemplate = pkg.getResource(WfConstants.PM, WfConstants.WILDFLY, WfConstants.MODULE).resolve(moduleXmlRelativePath);
         final Path targetPath = runtime.getStagedDir().resolve(moduleXmlRelativePath.toString());
+        final Map<String, String> versionProps = fpArtifactVersions.get(pkg.getFeaturePackRuntime().getFPID().getProducer());
 
-        final Builder builder = new Builder(false);
-        final Document document;
-        try (BufferedReader reader = Files.newBufferedReader(moduleTemplate, StandardCharsets.UTF_8)) {
-            document = builder.build(reader);
-        } catch (ParsingException e) {
-            throw new IOException("Failed to parse document", e);
-        }
-        final Element rootElement = document.getRootElement();
-        if (! rootElement.getLocalName().equals("module") &&
-                // module-alias files don't need to be processed
-                // the only reason their are parsed and serialized is to match the processing in the legacy build tools
-                // this fixes the difference in line endings between the two builds
-                !rootElement.getLocalName().equals("module-alias")) {
-            // just copy the content and leave
-            Files.copy(moduleTemplate, targetPath, StandardCopyOption.REPLACE_EXISTING);
-            return;
+        String moduleKey = null;
+        String inputsHash = null;
+        Map<String, ModuleFingerprints.FileHash> moduleFiles = null;
+        if (moduleFingerprints != null) {
+            moduleKey = moduleXmlRelativePath.toString().replace(File.separatorChar, '/');
+            final List<MavenArtifact> moduleArtifacts = new ArrayList<>();
+            inputsHash = getModuleInputsHash(moduleTemplate, versionProps, moduleArtifacts);
+            if (reuseModule(moduleKey, inputsHash, targetPath, moduleArtifacts, schemaArtifacts)) {
+                return;
+            }
+            moduleFiles = new LinkedHashMap<>();
         }
-        final Map<String, String> versionProps = fpArtifactVersions.get(pkg.getFeaturePackRuntime().getFPID().getProducer());
-        // replace version, if any
-        final Attribute versionAttribute = rootElement.getAttribute("version");
-        if (versionAttribute != null) {
-            final String versionExpr = versionAttribute.getValue();
-            if (versionExpr.startsWith("${") && versionExpr.endsWith("}")) {
-                final String exprBody = versionExpr.substring(2, versionExpr.length() - 1);
-                final int optionsIndex = exprBody.indexOf('?');
-                final String artifactName;
-                if (optionsIndex > 0) {
-                    artifactName = exprBody.substring(0, optionsIndex);
-                } else {
-                    artifactName = exprBody;
-                }
-                final MavenArtifact artifact = Utils.toArtifactCoords(versionProps, artifactName, false);
-                if (artifact != null) {
-                    versionAttribute.setValue(artifact.getVersion());
-                }
-            }
-        }
-        // replace all artifact declarations
-        final Element resourcesElement = rootElement.getFirstChildElement("resources", rootElement.getNamespaceURI());
-        if (resourcesElement != null) {
-            final Elements artifacts = resourcesElement.getChildElements("artifact", rootElement.getNamespaceURI());
-            final int artifactCount = artifacts.size();
-            for (int i = 0; i < artifactCount; i ++) {
-                final Element element = artifacts.get(i);
-                assert element.getLocalName().equals("artifact");
-                final Attribute attribute = element.getAttribute("name");
-                String coordsStr = attribute.getValue();
-                boolean jandex = false;
-                if (coordsStr.startsWith("${") && coordsStr.endsWith("}")) {
-                    coordsStr = coordsStr.substring(2, coordsStr.length() - 1);
-                    final int optionsIndex = coordsStr.indexOf('?');
-                    if (optionsIndex >= 0) {
-                        jandex = coordsStr.indexOf("jandex", optionsIndex) >= 0;
-                        coordsStr = coordsStr.substring(0, optionsIndex);
-                    }
-                    coordsStr = versionProps.get(coordsStr);
-                }
 
-                if(coordsStr == null) {
-                    continue;
-                }
-                MavenArtifact artifact;
-                try {
-                    artifact = Utils.toArtifactCoords(versionProps, coordsStr, false);
-                } catch (ProvisioningException e) {
-                    throw new IOException("Failed to resolve full coordinates for " + coordsStr, e);
+        // module-alias files don't need to be processed
+        // the only reason they are rewritten is to match the processing in the legacy build tools
+        // this fixes the difference in line endings between the two builds
+        final Map<String, ModuleFingerprints.FileHash> files = moduleFiles;
+        final boolean rewritten;
+        try {
+            rewritten = ModuleXmlRewriter.rewrite(moduleTemplate, targetPath, new ModuleXmlRewriter.Handler() {
+                @Override
+                public String resolveVersion(String version) throws ProvisioningException {
+                    return resolveModuleVersion(versionProps, version);
                 }
-                final Path moduleArtifact;
 
-                log.verbose("Resolving %s", artifact);
-                try {
-                    maven.resolve(artifact);
-                } catch (ProvisioningException e) {
-                    throw new IOException("Failed to resolve artifact " + artifact, e);
-                }
-                moduleArtifact = artifact.getPath();
-
-                if (thinServer) {
-                    // ignore jandex variable, just resolve coordinates to a string
-                    final StringBuilder buf = new StringBuilder();
-                    buf.append(artifact.getGroupId());
-                    buf.append(':');
-                    buf.append(artifact.getArtifactId());
-                    buf.append(':');
-                    buf.append(artifact.getVersion());
-                    if(!artifact.getClassifier().isEmpty()) {
-                        buf.append(':');
-                        buf.append(artifact.getClassifier());
-                    }
-                    attribute.setValue(buf.toString());
-                } else {
-                    final Path targetDir = targetPath.getParent();
-                    final String artifactFileName = moduleArtifact.getFileName().toString();
-                    final String finalFileName;
-
-                    if (jandex) {
-                        final int lastDot = artifactFileName.lastIndexOf(".");
-                        final File target = new File(targetDir.toFile(),
-                                new StringBuilder().append(artifactFileName.substring(0, lastDot)).append("-jandex")
-                                        .append(artifactFileName.substring(lastDot)).toString());
-                        JandexIndexer.createIndex(moduleArtifact.toFile(), new FileOutputStream(target), log);
-                        finalFileName = target.getName();
-                    } else {
-                        finalFileName = artifactFileName;
-                        Files.copy(moduleArtifact, targetDir.resolve(artifactFileName), StandardCopyOption.REPLACE_EXISTING);
-                    }
-                    element.setLocalName("resource-root");
-                    attribute.setLocalName("path");
-                    attribute.setValue(finalFileName);
-                }
-                if (schemaGroups.contains(artifact.getGroupId())) {
-                    extractSchemas(moduleArtifact);
+                @Override
+                public ModuleXmlRewriter.Artifact resolveArtifact(String name) throws IOException {
+                    return installModuleArtifact(versionProps, name, targetPath, files, schemaArtifacts);
                 }
-            }
-        }
-        // now serialize the result
-        try (OutputStream outputStream = Files.newOutputStream(targetPath)) {
-            new Serializer(outputStream).write(document);
+            });
         } catch (Throwable t) {
             try {
                 Files.deleteIfExists(targetPath);
@@ -695,6 +1159,217 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
             }
             throw t;
         }
+        if (!rewritten) {
+            // just copy the content
+            Files.copy(moduleTemplate, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (moduleFiles != null) {
+            recordModule(moduleKey, inputsHash, targetPath, moduleFiles);
+        }
+    }
+
+    /**
+     * Resolves the value of the version attribute of a module template.
+     *
+     * @return  the version or null if the value is not an expression or the artifact could not be resolved
+     */
+    private String resolveModuleVersion(Map<String, String> versionProps, String versionExpr) throws ProvisioningException {
+        if (!versionExpr.startsWith("${") || !versionExpr.endsWith("}")) {
+            return null;
+        }
+        final String exprBody = versionExpr.substring(2, versionExpr.length() - 1);
+        final int optionsIndex = exprBody.indexOf('?');
+        final String artifactName;
+        if (optionsIndex > 0) {
+            artifactName = exprBody.substring(0, optionsIndex);
+        } else {
+            artifactName = exprBody;
+        }
+        final MavenArtifact artifact = artifactCoords.toArtifactCoords(versionProps, artifactName, false);
+        return artifact == null ? null : artifact.getVersion();
+    }
+
+    /**
+     * Resolves an artifact of a module template to the artifact coordinates.
+     *
+     * @return  the coordinates or null if the expression could not be resolved
+     */
+    private static String getModuleArtifactCoords(Map<String, String> versionProps, ModuleDescriptor.Artifact artifact) {
+        return artifact.isExpression() ? versionProps.get(artifact.getCoords()) : artifact.getCoords();
+    }
+
+    /**
+     * Resolves an artifact of a module template and installs it next to the module.xml, unless this is a thin server.
+     * If the artifact is in one of the schema groups, it is added to the schema artifacts.
+     *
+     * @return  the replacement of the artifact element or null if the artifact expression could not be resolved
+     */
+    private ModuleXmlRewriter.Artifact installModuleArtifact(Map<String, String> versionProps, String name, Path targetPath,
+            Map<String, ModuleFingerprints.FileHash> moduleFiles, List<MavenArtifact> schemaArtifacts) throws IOException {
+        final ModuleDescriptor.Artifact moduleArtifactName = new ModuleDescriptor.Artifact(name);
+        final String coordsStr = getModuleArtifactCoords(versionProps, moduleArtifactName);
+        if(coordsStr == null) {
+            return null;
+        }
+        final boolean jandex = moduleArtifactName.isJandex();
+        MavenArtifact artifact;
+        try {
+            artifact = artifactCoords.toArtifactCoords(versionProps, coordsStr, false);
+        } catch (ProvisioningException e) {
+            throw new IOException("Failed to resolve full coordinates for " + coordsStr, e);
+        }
+
+        log.verbose("Resolving %s", artifact);
+        try {
+            resolveArtifact(artifact);
+        } catch (ProvisioningException e) {
+            throw new IOException("Failed to resolve artifact " + artifact, e);
+        }
+        final Path moduleArtifact = artifact.getPath();
+
+        final ModuleXmlRewriter.Artifact replacement;
+        if (thinServer) {
+            // ignore jandex variable, just resolve coordinates to a string
+            final StringBuilder buf = new StringBuilder();
+            buf.append(artifact.getGroupId());
+            buf.append(':');
+            buf.append(artifact.getArtifactId());
+            buf.append(':');
+            buf.append(artifact.getVersion());
+            if(!artifact.getClassifier().isEmpty()) {
+                buf.append(':');
+                buf.append(artifact.getClassifier());
+            }
+            replacement = ModuleXmlRewriter.Artifact.coords(buf.toString());
+        } else {
+            final Path targetDir = targetPath.getParent();
+            final String artifactFileName = moduleArtifact.getFileName().toString();
+            final String finalFileName;
+
+            if (jandex) {
+                final int lastDot = artifactFileName.lastIndexOf(".");
+                final File target = new File(targetDir.toFile(),
+                        new StringBuilder().append(artifactFileName.substring(0, lastDot)).append("-jandex")
+                                .append(artifactFileName.substring(lastDot)).toString());
+                final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.JANDEX_INDEX)
+                        .set("artifact", getArtifactKey(artifact))
+                        .set("bytes", moduleArtifact.toFile().length());
+                boolean cached = false;
+                if (jandexCache == null) {
+                    JandexIndexer.createIndex(moduleArtifact.toFile(), new FileOutputStream(target), log, executor);
+                } else {
+                    cached = jandexCache.createIndex(moduleArtifact, target.toPath(), executor);
+                }
+                event.set("source", cached ? "cached" : "built").commit();
+                finalFileName = target.getName();
+                if (moduleFiles != null) {
+                    moduleFiles.put(finalFileName, ModuleFingerprints.FileHash.of(target.toPath(), Utils.sha1(target.toPath())));
+                }
+            } else {
+                finalFileName = artifactFileName;
+                final Path installed = targetDir.resolve(artifactFileName);
+                installArtifact(moduleArtifact, installed);
+                if (moduleFiles != null) {
+                    moduleFiles.put(finalFileName, ModuleFingerprints.FileHash.of(installed, getArtifactHash(moduleArtifact)));
+                }
+            }
+            replacement = ModuleXmlRewriter.Artifact.resourceRoot(finalFileName);
+        }
+        if (schemaGroups.contains(artifact.getGroupId())) {
+            schemaArtifacts.add(artifact);
+        }
+        return replacement;
+    }
+
+    /**
+     * Computes the hash of everything the content generated for the module depends on: the template,
+     * the resolved module version and artifact coordinates and the content of the artifacts.
+     * The artifacts referenced from the template are resolved and added to the list.
+     */
+    private String getModuleInputsHash(Path moduleTemplate, Map<String, String> versionProps,
+            List<MavenArtifact> moduleArtifacts) throws ProvisioningException, IOException {
+        final StringBuilder buf = new StringBuilder();
+        buf.append(Utils.sha1(moduleTemplate)).append('\n');
+        buf.append(thinServer).append('\n');
+        final ModuleDescriptor descriptor = getModuleDescriptor(moduleTemplate);
+        if (!descriptor.isModule()) {
+            return Utils.sha1(buf.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (descriptor.getVersionArtifactName() != null) {
+            buf.append(resolveModuleVersion(versionProps, descriptor.getVersion())).append('\n');
+        }
+        for (ModuleDescriptor.Artifact moduleArtifact : descriptor.getArtifacts()) {
+            final String coordsStr = getModuleArtifactCoords(versionProps, moduleArtifact);
+            if (coordsStr == null) {
+                continue;
+            }
+            final MavenArtifact artifact = artifactCoords.toArtifactCoords(versionProps, coordsStr, false);
+            resolveArtifact(artifact);
+            moduleArtifacts.add(artifact);
+            buf.append(getArtifactKey(artifact)).append('=').append(getArtifactHash(artifact.getPath())).append('\n');
+        }
+        return Utils.sha1(buf.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the hash of the content of the artifact. The artifact is hashed only if it has changed
+     * since it was hashed by the previous provisioning of the installation.
+     */
+    private String getArtifactHash(Path artifact) throws IOException {
+        String hash = artifactHashes.get(artifact);
+        if (hash == null) {
+            ModuleFingerprints.FileHash fileHash = installedModuleFingerprints.getArtifact(artifact);
+            if (fileHash == null) {
+                fileHash = ModuleFingerprints.FileHash.of(artifact, Utils.sha1(artifact));
+            }
+            moduleFingerprints.putArtifact(artifact, fileHash);
+            hash = fileHash.hash;
+            artifactHashes.put(artifact, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Copies the module files from the current installation to the staged directory, in case
+     * the module was generated from the same inputs and its files have not been modified since then.
+     * Only the installed files whose size or last modified time differ from the recorded ones are hashed.
+     */
+    private boolean reuseModule(String moduleKey, String inputsHash, Path targetPath, List<MavenArtifact> moduleArtifacts,
+            List<MavenArtifact> schemaArtifacts) throws IOException {
+        final ModuleFingerprints.Module module = installedModuleFingerprints.get(moduleKey);
+        if (module == null || !module.inputsHash.equals(inputsHash)) {
+            return false;
+        }
+        final Path installedDir = runtime.getInstallationHome().resolve(moduleKey).getParent();
+        for (Map.Entry<String, ModuleFingerprints.FileHash> file : module.files.entrySet()) {
+            final Path installedFile = installedDir.resolve(file.getKey());
+            if (!Files.exists(installedFile)) {
+                return false;
+            }
+            if (!file.getValue().isUnchanged(installedFile) && !Utils.sha1(installedFile).equals(file.getValue().hash)) {
+                return false;
+            }
+        }
+        final Path targetDir = targetPath.getParent();
+        final Map<String, ModuleFingerprints.FileHash> files = new LinkedHashMap<>(module.files.size());
+        for (Map.Entry<String, ModuleFingerprints.FileHash> file : module.files.entrySet()) {
+            final Path target = targetDir.resolve(file.getKey());
+            installArtifact(installedDir.resolve(file.getKey()), target);
+            files.put(file.getKey(), ModuleFingerprints.FileHash.of(target, file.getValue().hash));
+        }
+        moduleFingerprints.put(moduleKey, new ModuleFingerprints.Module(inputsHash, files));
+        for (MavenArtifact artifact : moduleArtifacts) {
+            if (schemaGroups.contains(artifact.getGroupId())) {
+                schemaArtifacts.add(artifact);
+            }
+        }
+        return true;
+    }
+
+    private void recordModule(String moduleKey, String inputsHash, Path targetPath,
+            Map<String, ModuleFingerprints.FileHash> moduleFiles) throws IOException {
+        moduleFiles.put(targetPath.getFileName().toString(), ModuleFingerprints.FileHash.of(targetPath, Utils.sha1(targetPath)));
+        moduleFingerprints.put(moduleKey, new ModuleFingerprints.Module(inputsHash, moduleFiles));
     }
 
     public void addExampleConfigs(FeaturePackRuntime fp, ExampleFpConfigs exampleConfigs) throws ProvisioningException {
@@ -704,27 +1379,74 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         } else {
             originFpId = fp.getFPID();
         }
-        ExampleFpConfigs existingConfigs = this.exampleConfigs.get(originFpId);
-        if(existingConfigs == null) {
-            this.exampleConfigs = CollectionUtils.put(this.exampleConfigs, originFpId, exampleConfigs);
-        } else {
-            existingConfigs.addAll(exampleConfigs);
+        registeredExampleConfigs.put(getTaskOrder(exampleConfigs), new AbstractMap.SimpleImmutableEntry<>(originFpId, exampleConfigs));
+    }
+
+    /**
+     * Copies the schemas included in the artifacts to docs/schema as if the artifacts were extracted one after
+     * another in the given order, i.e. a schema included in more than one artifact is copied from the last one.
+     * The winning artifact of each schema is determined going from the last artifact to the first one,
+     * so an artifact is opened at most once and not at all if the schema manifest recorded when the feature-pack
+     * was built shows that its schemas are included in the following artifacts. The artifacts that are not
+     * in the manifest are listed to find out their schemas.
+     */
+    private void extractSchemas(List<MavenArtifact> artifacts) throws IOException {
+        final Set<Path> processed = new HashSet<>();
+        final Set<String> claimed = new HashSet<>();
+        final Map<Path, List<String>> copies = new LinkedHashMap<>();
+        for (int i = artifacts.size() - 1; i >= 0; --i) {
+            final MavenArtifact artifact = artifacts.get(i);
+            final Path artifactPath = artifact.getPath();
+            // the same artifact may be referenced by more than one module
+            if (!processed.add(artifactPath)) {
+                continue;
+            }
+            List<String> schemas = schemaManifest.get(SchemaManifest.key(artifact.getGroupId(), artifact.getArtifactId(),
+                    artifact.getVersion(), artifact.getClassifier(), artifact.getExtension()));
+            if (schemas == null) {
+                schemas = SchemaManifest.listSchemas(artifactPath);
+            }
+            List<String> copied = Collections.emptyList();
+            for (String schema : schemas) {
+                if (claimed.add(schema)) {
+                    copied = CollectionUtils.add(copied, schema);
+                }
+            }
+            if (!copied.isEmpty()) {
+                copies.put(artifactPath, copied);
+            }
+        }
+        if (copies.size() == 1) {
+            final Map.Entry<Path, List<String>> copy = copies.entrySet().iterator().next();
+            copySchemas(copy.getKey(), copy.getValue());
+        } else if (!copies.isEmpty()) {
+            // each schema is copied from one artifact only, so the artifacts can be copied from in parallel
+            final List<ParallelExecutor.Task> tasks = new ArrayList<>(copies.size());
+            for (Map.Entry<Path, List<String>> copy : copies.entrySet()) {
+                tasks.add(() -> copySchemas(copy.getKey(), copy.getValue()));
+            }
+            try {
+                executor.execute(tasks);
+            } catch (ProvisioningException e) {
+                throw new IOException("Failed to extract schemas", e);
+            }
         }
     }
 
-    private void extractSchemas(Path moduleArtifact) throws IOException {
+    private void copySchemas(Path artifactPath, List<String> schemas) throws IOException {
         final Path targetSchemasDir = this.runtime.getStagedDir().resolve(WfConstants.DOCS).resolve(WfConstants.SCHEMA);
-        Files.createDirectories(targetSchemasDir);
-        try (FileSystem jarFS = FileSystems.newFileSystem(moduleArtifact, null)) {
+        try (FileSystem jarFS = FileSystems.newFileSystem(artifactPath, null)) {
             final Path schemaSrc = jarFS.getPath(WfConstants.SCHEMA);
-            if (Files.exists(schemaSrc)) {
-                ZipUtils.copyFromZip(schemaSrc.toAbsolutePath(), targetSchemasDir);
+            for (String schema : schemas) {
+                final Path target = targetSchemasDir.resolve(schema);
+                Files.createDirectories(target.getParent());
+                Files.copy(schemaSrc.resolve(schema), target, StandardCopyOption.REPLACE_EXISTING);
             }
         }
     }
 
     public void copyArtifact(CopyArtifact copyArtifact, PackageRuntime pkg) throws ProvisioningException {
-        final MavenArtifact artifact = Utils.toArtifactCoords(
+        final MavenArtifact artifact = artifactCoords.toArtifactCoords(
                 copyArtifact.isFeaturePackVersion() ? fpArtifactVersions.get(pkg.getFeaturePackRuntime().getFPID().getProducer())
                         : mergedArtifactVersions,
                 copyArtifact.getArtifact(), copyArtifact.isOptional());
@@ -733,7 +1455,7 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         }
         try {
             log.verbose("Resolving artifact %s ", artifact);
-            maven.resolve(artifact);
+            resolveArtifact(artifact);
             final Path jarSrc = artifact.getPath();
             String location = copyArtifact.getToLocation();
             if (!location.isEmpty() && location.charAt(location.length() - 1) == '/') {
@@ -747,63 +1469,194 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
             Files.createDirectories(jarTarget.getParent());
             log.verbose("Copying artifact %s to %s", jarSrc, jarTarget);
             if (copyArtifact.isExtract()) {
-                Utils.extractArtifact(jarSrc, jarTarget, copyArtifact);
+                Utils.extractArtifact(jarSrc, jarTarget, copyArtifact, executor);
             } else {
-                IoUtils.copy(jarSrc, jarTarget);
+                installArtifact(jarSrc, jarTarget);
             }
             if(schemaGroups.contains(artifact.getGroupId())) {
-                extractSchemas(jarSrc);
+                // the copy-artifact tasks are ordered by their docs/schema output
+                extractSchemas(Collections.singletonList(artifact));
             }
         } catch (IOException e) {
             throw new ProvisioningException("Failed to copy artifact " + artifact, e);
         }
     }
 
+    /**
+     * Copies an artifact resolved from the Maven repository into the staged installation or,
+     * if linking artifacts was enabled, creates a hard link to it. If a link can't be created
+     * (e.g. the repository and the installation are on different file systems) linking is
+     * disabled for the rest of the provisioning and the artifact is copied.
+     * Note that a hard link shares the file attributes (including permissions) with the artifact
+     * in the repository, so the links are recorded and replaced with copies before their permissions are changed.
+     */
+    private void installArtifact(Path src, Path target) throws IOException {
+        final ProvisioningEvent event = ProvisioningEvent.begin(ProvisioningEvent.Type.ARTIFACT_INSTALL);
+        if (event.isEnabled()) {
+            event.set("artifact", src).set("bytes", src.toFile().length());
+        }
+        if (linkArtifacts) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, src);
+                linkedArtifacts.add(target.toAbsolutePath().normalize());
+                event.set("mode", "link").commit();
+                return;
+            } catch (IOException | UnsupportedOperationException | SecurityException e) {
+                if (linkArtifacts) {
+                    linkArtifacts = false;
+                    log.verbose("Failed to link %s to %s, falling back to copying artifacts: %s", src, target, e.getLocalizedMessage());
+                }
+            }
+        }
+        Utils.copyFile(src, target);
+        event.set("mode", "copy").commit();
+    }
+
+    public void addFilePermissions(FilePermissions task) {
+        if(task.getPhase() == WildFlyPackageTask.Phase.PROCESSING) {
+            processingPermissions.put(getTaskOrder(task), task);
+        } else {
+            finalizingPermissions.put(getTaskOrder(task), task);
+        }
+    }
+
+    private void scheduled(WildFlyPackageTask task) {
+        taskOrder.put(task, nextTaskOrder.getAndIncrement());
+    }
+
+    private int getTaskOrder(WildFlyPackageTask task) {
+        final Integer order = taskOrder.get(task);
+        return order == null ? nextTaskOrder.getAndIncrement() : order;
+    }
+
+    private void applyFilePermissions(Collection<FilePermissions> tasks) throws ProvisioningException {
+        List<FilePermission> permissions = Collections.emptyList();
+        for(FilePermissions task : tasks) {
+            permissions = CollectionUtils.addAll(permissions, task.getPermissions());
+        }
+        final FilePermissionsMatcher matcher = new FilePermissionsMatcher(permissions);
+        final Path installDir = runtime.getStagedDir();
+        try {
+            Files.walkFileTree(installDir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    setPermissions(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    setPermissions(file);
+                    return FileVisitResult.CONTINUE;
+                }
+                private void setPermissions(Path path) throws IOException {
+                    final Set<PosixFilePermission> permission = matcher.getPermission(installDir.relativize(path).toString());
+                    if(permission != null) {
+                        if(linkedArtifacts.remove(path.toAbsolutePath().normalize())) {
+                            unlinkArtifact(path);
+                        }
+                        Files.setPosixFilePermissions(path, permission);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new ProvisioningException("Failed to set file permissions", e);
+        }
+    }
+
+    /**
+     * Replaces a hard link to an artifact in the Maven repository with a copy of the artifact,
+     * so that changing its attributes does not affect the repository.
+     */
+    private static void unlinkArtifact(Path link) throws IOException {
+        final Path tmp = Files.createTempFile(link.getParent(), link.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(link, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, link, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
     public void copyPath(final Path relativeTo, CopyPath copyPath) throws ProvisioningException {
         final Path src = relativeTo.resolve(copyPath.getSrc());
         if (!Files.exists(src)) {
             throw new ProvisioningException(Errors.pathDoesNotExist(src));
         }
         final Path target = copyPath.getTarget() == null ? runtime.getStagedDir() : runtime.getStagedDir().resolve(copyPath.getTarget());
-        if (copyPath.isReplaceProperties()) {
-            if (!Files.exists(target.getParent())) {
-                try {
-                    Files.createDirectories(target.getParent());
-                } catch (IOException e) {
-                    throw new ProvisioningException(Errors.mkdirs(target.getParent()), e);
-                }
-            }
-            try {
-                Files.walkFileTree(src, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
-                        new SimpleFileVisitor<Path>() {
-                            @Override
-                            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                                final Path targetDir = target.resolve(src.relativize(dir).toString());
-                                try {
-                                    Files.copy(dir, targetDir);
-                                } catch (FileAlreadyExistsException e) {
-                                    if (!Files.isDirectory(targetDir)) {
-                                        throw e;
-                                    }
-                                }
-                                return FileVisitResult.CONTINUE;
-                            }
+        try {
+            copyTree(src, target, copyPath.isReplaceProperties());
+        } catch (IOException e) {
+            throw new ProvisioningException(Errors.copyFile(src, target), e);
+        }
+    }
 
-                            @Override
-                            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                                PropertyReplacer.copy(file, target.resolve(src.relativize(file).toString()), mergedTaskPropsResolver);
-                                return FileVisitResult.CONTINUE;
+    /**
+     * Copies a file or a directory tree following symbolic links. The directories are created first,
+     * then the files are copied concurrently, either replacing the properties in their content or
+     * as they are.
+     */
+    private void copyTree(Path src, Path target, boolean replaceProperties) throws IOException {
+        if (Files.isDirectory(src)) {
+            Files.createDirectories(target);
+        } else {
+            Files.createDirectories(target.getParent());
+        }
+        final List<Path> files = new ArrayList<>();
+        Files.walkFileTree(src, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                        final Path targetDir = target.resolve(src.relativize(dir).toString());
+                        try {
+                            Files.copy(dir, targetDir);
+                        } catch (FileAlreadyExistsException e) {
+                            if (!Files.isDirectory(targetDir)) {
+                                throw e;
                             }
-                        });
-            } catch (IOException e) {
-                throw new ProvisioningException(Errors.copyFile(src, target), e);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        files.add(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+
+        if (files.size() < 2 || executor.getParallelism() == 1) {
+            for (Path file : files) {
+                copyTreeFile(file, target.resolve(src.relativize(file).toString()), replaceProperties);
             }
-        } else {
-            try {
-                IoUtils.copy(src, target);
-            } catch (IOException e) {
-                throw new ProvisioningException(Errors.copyFile(src, target));
+            return;
+        }
+        final int chunks = Math.min(executor.getParallelism(), files.size());
+        final List<ParallelExecutor.Task> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; ++i) {
+            final int chunk = i;
+            tasks.add(() -> {
+                for (int j = chunk; j < files.size(); j += chunks) {
+                    final Path file = files.get(j);
+                    copyTreeFile(file, target.resolve(src.relativize(file).toString()), replaceProperties);
+                }
+            });
+        }
+        try {
+            executor.execute(tasks);
+        } catch (ProvisioningException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw new IOException("Failed to copy " + src, e);
+        }
+    }
+
+    private void copyTreeFile(Path file, Path target, boolean replaceProperties) throws IOException {
+        if (replaceProperties) {
+            PropertyReplacer.copy(file, target, mergedTaskPropsResolver);
+        } else {
+            Utils.copyFile(file, target);
         }
     }
 
@@ -813,7 +1666,11 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
             return;
         }
         if(deletePath.isRecursive()) {
-            IoUtils.recursiveDelete(path);
+            try {
+                deleteTree(path);
+            } catch (IOException e) {
+                throw new ProvisioningException(Errors.deletePath(path), e);
+            }
             return;
         }
         if(deletePath.isIfEmpty()) {
@@ -835,6 +1692,69 @@ public class WfInstallPlugin extends ProvisioningPluginWithOptions implements In
         }
     }
 
+    /**
+     * Deletes a file or a directory tree. The files are deleted concurrently, then the emptied directories
+     * are deleted bottom-up. Like {@link IoUtils#recursiveDelete(Path)}, the deletion is best effort,
+     * i.e. the entries that could not be deleted are left in place.
+     */
+    private void deleteTree(Path root) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        final List<Path> dirs = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                // children are visited before their parents
+                dirs.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if (files.size() < 2 || executor.getParallelism() == 1) {
+            for (Path file : files) {
+                deleteIfPossible(file);
+            }
+        } else {
+            final int chunks = Math.min(executor.getParallelism(), files.size());
+            final List<ParallelExecutor.Task> tasks = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; ++i) {
+                final int chunk = i;
+                tasks.add(() -> {
+                    for (int j = chunk; j < files.size(); j += chunks) {
+                        deleteIfPossible(files.get(j));
+                    }
+                });
+            }
+            try {
+                executor.execute(tasks);
+            } catch (ProvisioningException e) {
+                throw new IOException("Failed to delete " + root, e);
+            }
+        }
+        for (Path dir : dirs) {
+            deleteIfPossible(dir);
+        }
+    }
+
+    private static void deleteIfPossible(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // left in place
+        }
+    }
+
     private static void mkdirs(final WildFlyPackageTasks tasks, Path installDir) throws ProvisioningException {
         // make dirs
         for (String dirName : tasks.getMkDirs()) {
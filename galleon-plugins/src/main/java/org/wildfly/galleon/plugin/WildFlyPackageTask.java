@@ -17,6 +17,9 @@
 
 package org.wildfly.galleon.plugin;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.jboss.galleon.ProvisioningException;
 import org.jboss.galleon.runtime.PackageRuntime;
 
@@ -35,5 +38,27 @@ public interface WildFlyPackageTask {
         return Phase.PROCESSING;
     }
 
+    /**
+     * Paths, relative to the installation directory, the task reads. Tasks that do not write
+     * to the paths read by each other may be executed concurrently.
+     *
+     * @return  paths the task reads
+     */
+    default List<String> getInputPaths() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Paths, relative to the installation directory, the task writes or deletes. Tasks that do not
+     * access the paths written by each other may be executed concurrently. If the task does not know
+     * which paths it writes, it should return null, in which case it will be executed after
+     * all the tasks of the phase that precede it and before all the tasks that follow it.
+     *
+     * @return  paths the task writes or null if they are not known
+     */
+    default List<String> getOutputPaths() {
+        return null;
+    }
+
     void execute(WfInstallPlugin plugin, PackageRuntime pkg) throws ProvisioningException;
 }
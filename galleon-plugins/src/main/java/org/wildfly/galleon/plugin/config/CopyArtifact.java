@@ -17,12 +17,14 @@
 package org.wildfly.galleon.plugin.config;
 
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import org.jboss.galleon.ProvisioningException;
 import org.jboss.galleon.runtime.PackageRuntime;
 import org.jboss.galleon.util.CollectionUtils;
+import org.wildfly.galleon.plugin.WfConstants;
 import org.wildfly.galleon.plugin.WfInstallPlugin;
 import org.wildfly.galleon.plugin.WildFlyPackageTask;
 
@@ -40,6 +42,7 @@ public class CopyArtifact implements WildFlyPackageTask {
     private String toLocation;
     private boolean extract;
     private List<FileFilter> filters = Collections.emptyList();
+    private FileFilterSet filterSet;
     private boolean optional;
     private boolean featurePackVersion;
 
@@ -60,6 +63,7 @@ public class CopyArtifact implements WildFlyPackageTask {
 
     public void addFilter(FileFilter filter) {
         filters = CollectionUtils.add(filters, filter);
+        filterSet = null;
     }
 
     public String getArtifact() {
@@ -87,12 +91,12 @@ public class CopyArtifact implements WildFlyPackageTask {
     }
 
     public boolean includeFile(final String path) {
-        for(FileFilter filter : filters) {
-            if(filter.matches(path)) {
-                return filter.isInclude();
-            }
+        FileFilterSet filterSet = this.filterSet;
+        if(filterSet == null) {
+            filterSet = new FileFilterSet(filters, true); //default include
+            this.filterSet = filterSet;
         }
-        return true; //default include
+        return filterSet.includeFile(path);
     }
 
     public void setFeaturePackVersion() {
@@ -103,6 +107,14 @@ public class CopyArtifact implements WildFlyPackageTask {
         return featurePackVersion;
     }
 
+    /**
+     * Besides the target location, the schemas of the artifact may be extracted to docs/schema.
+     */
+    @Override
+    public List<String> getOutputPaths() {
+        return Arrays.asList(toLocation, WfConstants.DOCS + '/' + WfConstants.SCHEMA);
+    }
+
     @Override
     public void execute(WfInstallPlugin plugin, PackageRuntime pkg) throws ProvisioningException {
         try {
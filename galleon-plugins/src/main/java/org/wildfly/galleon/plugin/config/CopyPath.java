@@ -16,6 +16,9 @@
  */
 package org.wildfly.galleon.plugin.config;
 
+import java.util.Collections;
+import java.util.List;
+
 import javax.xml.stream.XMLStreamException;
 
 import org.jboss.galleon.ProvisioningException;
@@ -73,6 +76,11 @@ public class CopyPath implements WildFlyPackageTask {
         return replaceProperties;
     }
 
+    @Override
+    public List<String> getOutputPaths() {
+        return Collections.singletonList(target == null ? "" : target);
+    }
+
     @Override
     public void execute(WfInstallPlugin plugin, PackageRuntime pkg) throws ProvisioningException {
         plugin.copyPath(relativeToContent ? pkg.getContentDir() : pkg.getResource(WfConstants.PM, WfConstants.WILDFLY), this);
@@ -16,6 +16,9 @@
  */
 package org.wildfly.galleon.plugin.config;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.jboss.galleon.ProvisioningException;
 import org.jboss.galleon.runtime.PackageRuntime;
 import org.wildfly.galleon.plugin.WfInstallPlugin;
@@ -54,6 +57,11 @@ public class DeletePath implements WildFlyPackageTask {
         return ifEmpty;
     }
 
+    @Override
+    public List<String> getOutputPaths() {
+        return Collections.singletonList(path);
+    }
+
     @Override
     public void execute(WfInstallPlugin plugin, PackageRuntime pkg) throws ProvisioningException {
         plugin.deletePath(this);
@@ -18,6 +18,7 @@
 package org.wildfly.galleon.plugin.config;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.jboss.galleon.ProvisioningException;
@@ -61,6 +62,14 @@ public class ExampleFpConfigs implements WildFlyPackageTask {
         }
     }
 
+    /**
+     * The task only registers its state with the plugin, which applies it after the tasks of the phase.
+     */
+    @Override
+    public List<String> getOutputPaths() {
+        return Collections.emptyList();
+    }
+
     @Override
     public void execute(WfInstallPlugin plugin, PackageRuntime pkg) throws ProvisioningException {
         plugin.addExampleConfigs(pkg.getFeaturePackRuntime(), this);
@@ -27,16 +27,75 @@ import org.jboss.galleon.util.ParsingUtils;
  */
 public class FileFilter {
 
+    private static final int REGEX = 0;
+    private static final int EQUALS = 1;
+    private static final int PREFIX = 2;
+    private static final int SUFFIX = 3;
+    private static final int CONTAINS = 4;
+    private static final int PREFIX_SUFFIX = 5;
+
     private String patternString;
     private Pattern pattern;
     private boolean include;
 
+    // fast path for the patterns that consist of literals and at most two '*'
+    private int kind = REGEX;
+    private String prefix;
+    private String suffix;
+
     public FileFilter() {
     }
 
     public void setPatternString(String patternString) {
         this.patternString = patternString;
         this.pattern = Pattern.compile(ParsingUtils.wildcardToJavaRegexp(patternString));
+        initFastPath(patternString);
+    }
+
+    private void initFastPath(String patternString) {
+        kind = REGEX;
+        prefix = null;
+        suffix = null;
+        int firstStar = -1;
+        int secondStar = -1;
+        for(int i = 0; i < patternString.length(); ++i) {
+            final char c = patternString.charAt(i);
+            if(c == '*') {
+                if(firstStar < 0) {
+                    firstStar = i;
+                } else if(secondStar < 0) {
+                    secondStar = i;
+                } else {
+                    return;
+                }
+            } else if(!isLiteral(c)) {
+                return;
+            }
+        }
+        if(firstStar < 0) {
+            kind = EQUALS;
+            prefix = patternString;
+        } else if(secondStar < 0) {
+            prefix = patternString.substring(0, firstStar);
+            suffix = patternString.substring(firstStar + 1);
+            kind = suffix.isEmpty() ? PREFIX : prefix.isEmpty() ? SUFFIX : PREFIX_SUFFIX;
+        } else if(firstStar == 0 && secondStar == patternString.length() - 1) {
+            kind = CONTAINS;
+            prefix = patternString.substring(1, secondStar);
+        }
+    }
+
+    private static boolean isLiteral(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                || c == '/' || c == '.' || c == '-' || c == '_';
+    }
+
+    boolean isRegex() {
+        return kind == REGEX;
+    }
+
+    Pattern getRegex() {
+        return pattern;
     }
 
     public void setInclude() {
@@ -51,7 +110,40 @@ public class FileFilter {
      * Returns true if the file matches the regular expression
      */
     public boolean matches(final String filePath) {
-        return pattern.matcher(filePath).matches();
+        switch(kind) {
+            case EQUALS:
+                return filePath.equals(prefix);
+            case PREFIX:
+                return filePath.startsWith(prefix) && !hasLineTerminator(filePath, prefix.length(), filePath.length());
+            case SUFFIX:
+                return filePath.endsWith(suffix) && !hasLineTerminator(filePath, 0, filePath.length() - suffix.length());
+            case PREFIX_SUFFIX:
+                return filePath.length() >= prefix.length() + suffix.length()
+                        && filePath.startsWith(prefix) && filePath.endsWith(suffix)
+                        && !hasLineTerminator(filePath, prefix.length(), filePath.length() - suffix.length());
+            case CONTAINS:
+                // '*' translates to '.*' which does not match line terminators
+                int i = filePath.indexOf(prefix);
+                while(i >= 0) {
+                    if(!hasLineTerminator(filePath, 0, i)) {
+                        return !hasLineTerminator(filePath, i + prefix.length(), filePath.length());
+                    }
+                    i = filePath.indexOf(prefix, i + 1);
+                }
+                return false;
+            default:
+                return pattern.matcher(filePath).matches();
+        }
+    }
+
+    private static boolean hasLineTerminator(String s, int from, int to) {
+        for(int i = from; i < to; ++i) {
+            final char c = s.charAt(i);
+            if(c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean isInclude() {
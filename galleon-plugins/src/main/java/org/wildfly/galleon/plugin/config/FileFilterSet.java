@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.galleon.plugin.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Ordered list of include/exclude {@link FileFilter}s compiled for matching.
+ *
+ * The first filter that matches a path determines whether the path is included.
+ * If none of them matches, the default applies.
+ *
+ * Since only the first match matters, consecutive filters with the same include flag
+ * are evaluated as a group: the filters that have a literal fast path are tried first and
+ * the regular expressions of the rest of the group are combined into a single alternation.
+ */
+public class FileFilterSet {
+
+    private static class Group {
+        final boolean include;
+        final List<FileFilter> literals = new ArrayList<>();
+        final List<String> regexes = new ArrayList<>();
+        Pattern regex;
+
+        Group(boolean include) {
+            this.include = include;
+        }
+
+        void add(FileFilter filter) {
+            if(filter.isRegex()) {
+                regexes.add(filter.getRegex().pattern());
+            } else {
+                literals.add(filter);
+            }
+        }
+
+        void compile() {
+            if(regexes.isEmpty()) {
+                return;
+            }
+            if(regexes.size() == 1) {
+                regex = Pattern.compile(regexes.get(0));
+                return;
+            }
+            final StringBuilder buf = new StringBuilder();
+            for(String r : regexes) {
+                if(buf.length() > 0) {
+                    buf.append('|');
+                }
+                buf.append("(?:").append(r).append(')');
+            }
+            regex = Pattern.compile(buf.toString());
+        }
+
+        boolean matches(String path) {
+            for(int i = 0; i < literals.size(); ++i) {
+                if(literals.get(i).matches(path)) {
+                    return true;
+                }
+            }
+            return regex != null && regex.matcher(path).matches();
+        }
+    }
+
+    private final Group[] groups;
+    private final boolean defaultInclude;
+
+    public FileFilterSet(List<FileFilter> filters, boolean defaultInclude) {
+        this.defaultInclude = defaultInclude;
+        final List<Group> groups = new ArrayList<>();
+        Group group = null;
+        for(FileFilter filter : filters) {
+            if(group == null || group.include != filter.isInclude()) {
+                group = new Group(filter.isInclude());
+                groups.add(group);
+            }
+            group.add(filter);
+        }
+        for(Group g : groups) {
+            g.compile();
+        }
+        this.groups = groups.toArray(new Group[groups.size()]);
+    }
+
+    public boolean includeFile(String path) {
+        for(Group group : groups) {
+            if(group.matches(path)) {
+                return group.include;
+            }
+        }
+        return defaultInclude;
+    }
+}
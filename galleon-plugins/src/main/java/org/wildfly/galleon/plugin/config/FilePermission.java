@@ -36,6 +36,7 @@ public class FilePermission {
     private Set<PosixFilePermission> permission = Collections.emptySet();
     private String value;
     private List<FileFilter> filters = Collections.emptyList();
+    private FileFilterSet filterSet;
 
     public FilePermission() {
     }
@@ -47,6 +48,7 @@ public class FilePermission {
 
     public void addFilter(FileFilter filter) {
         filters = CollectionUtils.add(filters, filter);
+        filterSet = null;
     }
 
     private static Set<PosixFilePermission> fromString(String permission) {
@@ -101,11 +103,11 @@ public class FilePermission {
     }
 
     public boolean includeFile(final String path) {
-        for(FileFilter filter : filters) {
-            if(filter.matches(path)) {
-                return filter.isInclude();
-            }
+        FileFilterSet filterSet = this.filterSet;
+        if(filterSet == null) {
+            filterSet = new FileFilterSet(filters, false); //default exclude
+            this.filterSet = filterSet;
         }
-        return false; //default exclude
+        return filterSet.includeFile(path);
     }
 }
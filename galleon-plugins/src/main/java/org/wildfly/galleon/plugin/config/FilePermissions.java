@@ -17,12 +17,6 @@
 
 package org.wildfly.galleon.plugin.config;
 
-import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
 import java.util.List;
 
@@ -55,40 +49,24 @@ public class FilePermissions implements WildFlyPackageTask {
         return phase;
     }
 
+    public List<FilePermission> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * The task only registers its state with the plugin, which applies it after the tasks of the phase.
+     */
+    @Override
+    public List<String> getOutputPaths() {
+        return Collections.emptyList();
+    }
+
     @Override
     public void execute(WfInstallPlugin plugin, PackageRuntime pkg) throws ProvisioningException {
         if(PropertyUtils.isWindows()) {
             return;
         }
-
-        try {
-            final Path installDir = plugin.getRuntime().getStagedDir();
-            Files.walkFileTree(installDir, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                    final String relative = installDir.relativize(dir).toString();
-                    for (FilePermission perm : permissions) {
-                        if (perm.includeFile(relative)) {
-                            Files.setPosixFilePermissions(dir, perm.getPermission());
-                            continue;
-                        }
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    final String relative = installDir.relativize(file).toString();
-                    for (FilePermission perm : permissions) {
-                        if (perm.includeFile(relative)) {
-                            Files.setPosixFilePermissions(file, perm.getPermission());
-                            continue;
-                        }
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        } catch (IOException e) {
-            throw new ProvisioningException("Failed to set file permissions", e);
-        }
+        // the permissions of all the tasks of the same phase are applied in a single walk
+        plugin.addFilePermissions(this);
     }
 }
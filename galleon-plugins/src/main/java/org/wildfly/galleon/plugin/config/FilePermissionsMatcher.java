@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.galleon.plugin.config;
+
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the permissions to apply to a path out of a sequence of {@link FilePermission}s
+ * as if each of them was applied in order, i.e. the last permission that includes
+ * the path wins.
+ *
+ * Equal filters (i.e. with the same pattern and include flag) of different permissions
+ * are evaluated at most once per path. Filters are indexed by the literal prefix of their patterns,
+ * so that only the filters whose prefix is a prefix of the path are evaluated at all.
+ *
+ * Instances are not thread-safe.
+ */
+public class FilePermissionsMatcher {
+
+    private static class PrefixNode {
+        private Map<Character, PrefixNode> children;
+        private int[] filters;
+
+        PrefixNode child(char c) {
+            return children == null ? null : children.get(c);
+        }
+
+        PrefixNode addChild(char c) {
+            if(children == null) {
+                children = new HashMap<>();
+            }
+            PrefixNode child = children.get(c);
+            if(child == null) {
+                child = new PrefixNode();
+                children.put(c, child);
+            }
+            return child;
+        }
+
+        void addFilter(int filter) {
+            if(filters == null) {
+                filters = new int[] {filter};
+                return;
+            }
+            final int[] tmp = new int[filters.length + 1];
+            System.arraycopy(filters, 0, tmp, 0, filters.length);
+            tmp[filters.length] = filter;
+            filters = tmp;
+        }
+    }
+
+    private final List<FilePermission> permissions;
+    private final int[][] permissionFilters;
+    private final FileFilter[] filters;
+    private final PrefixNode prefixes = new PrefixNode();
+
+    private final int[] candidate;
+    private final int[] evaluated;
+    private final boolean[] matched;
+    private int generation;
+
+    public FilePermissionsMatcher(List<FilePermission> permissions) {
+        this.permissions = new ArrayList<>(permissions.size());
+        final List<int[]> permissionFilters = new ArrayList<>(permissions.size());
+        // filters are shared by pattern and include flag, an include and an exclude of the same pattern are distinct filters
+        final Map<String, Integer> filterIds = new HashMap<>();
+        final List<FileFilter> filters = new ArrayList<>();
+        for(FilePermission permission : permissions) {
+            boolean includes = false;
+            for(FileFilter filter : permission.getFilters()) {
+                if(filter.isInclude()) {
+                    includes = true;
+                    break;
+                }
+            }
+            if(!includes) {
+                // excludes everything
+                continue;
+            }
+            final int[] ids = new int[permission.getFilters().size()];
+            int i = 0;
+            for(FileFilter filter : permission.getFilters()) {
+                final String filterKey = (filter.isInclude() ? "include:" : "exclude:") + filter.getPattern();
+                Integer id = filterIds.get(filterKey);
+                if(id == null) {
+                    id = filters.size();
+                    filterIds.put(filterKey, id);
+                    filters.add(filter);
+                    addPrefix(literalPrefix(filter.getPattern()), id);
+                }
+                ids[i++] = id;
+            }
+            this.permissions.add(permission);
+            permissionFilters.add(ids);
+        }
+        this.permissionFilters = permissionFilters.toArray(new int[permissionFilters.size()][]);
+        this.filters = filters.toArray(new FileFilter[filters.size()]);
+        candidate = new int[this.filters.length];
+        evaluated = new int[this.filters.length];
+        matched = new boolean[this.filters.length];
+    }
+
+    /**
+     * Returns the permissions of the last {@link FilePermission} that includes the path
+     * or null if none of them does.
+     *
+     * @param path  path relative to the installation directory
+     * @return  permissions to apply or null
+     */
+    public Set<PosixFilePermission> getPermission(String path) {
+        if(permissions.isEmpty()) {
+            return null;
+        }
+        ++generation;
+        if(!markCandidates(path)) {
+            return null;
+        }
+        for(int i = permissions.size() - 1; i >= 0; --i) {
+            for(int filterId : permissionFilters[i]) {
+                if(matches(filterId, path)) {
+                    if(filters[filterId].isInclude()) {
+                        return permissions.get(i).getPermission();
+                    }
+                    break;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean markCandidates(String path) {
+        boolean found = false;
+        PrefixNode node = prefixes;
+        int i = 0;
+        while(node != null) {
+            if(node.filters != null) {
+                for(int filterId : node.filters) {
+                    candidate[filterId] = generation;
+                }
+                found = true;
+            }
+            if(i == path.length()) {
+                break;
+            }
+            node = node.child(path.charAt(i++));
+        }
+        return found;
+    }
+
+    private boolean matches(int filterId, String path) {
+        if(candidate[filterId] != generation) {
+            return false;
+        }
+        if(evaluated[filterId] != generation) {
+            evaluated[filterId] = generation;
+            matched[filterId] = filters[filterId].matches(path);
+        }
+        return matched[filterId];
+    }
+
+    private void addPrefix(String prefix, int filterId) {
+        PrefixNode node = prefixes;
+        for(int i = 0; i < prefix.length(); ++i) {
+            node = node.addChild(prefix.charAt(i));
+        }
+        node.addFilter(filterId);
+    }
+
+    /**
+     * The part of the pattern up to the first character that may not match literally.
+     */
+    private static String literalPrefix(String pattern) {
+        for(int i = 0; i < pattern.length(); ++i) {
+            final char c = pattern.charAt(i);
+            if(!(Character.isLetterOrDigit(c) || c == '/' || c == '.' || c == '-' || c == '_')) {
+                return pattern.substring(0, i);
+            }
+        }
+        return pattern;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.galleon.plugin.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.jboss.galleon.util.CollectionUtils;
+
+/**
+ * Merges XML documents by streaming their events, without loading the documents into memory.
+ *
+ * The merged document is the first document in which the content of the first element
+ * at the merge depth (the root element being at depth 1) is followed by the content
+ * of the first element at the same depth of each of the other documents.
+ * E.g. with the merge depth of 2 the following documents
+ * <pre>
+ * &lt;licenseSummary&gt;&lt;dependencies&gt;&lt;dependency&gt;a&lt;/dependency&gt;&lt;/dependencies&gt;&lt;/licenseSummary&gt;
+ * &lt;licenseSummary&gt;&lt;dependencies&gt;&lt;dependency&gt;b&lt;/dependency&gt;&lt;/dependencies&gt;&lt;/licenseSummary&gt;
+ * </pre>
+ * are merged into
+ * <pre>
+ * &lt;licenseSummary&gt;&lt;dependencies&gt;&lt;dependency&gt;a&lt;/dependency&gt;&lt;dependency&gt;b&lt;/dependency&gt;&lt;/dependencies&gt;&lt;/licenseSummary&gt;
+ * </pre>
+ */
+class StreamingXmlMerger {
+
+    private static final String ENCODING = "UTF-8";
+    private static final XMLEventFactory EVENTS = XMLEventFactory.newInstance();
+
+    private static volatile XMLInputFactory inputFactory;
+    private static volatile XMLOutputFactory outputFactory;
+
+    private static XMLInputFactory getInputFactory() {
+        if(inputFactory == null) {
+            final XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            inputFactory = factory;
+        }
+        return inputFactory;
+    }
+
+    private static XMLOutputFactory getOutputFactory() {
+        if(outputFactory == null) {
+            outputFactory = XMLOutputFactory.newInstance();
+        }
+        return outputFactory;
+    }
+
+    static void merge(List<Path> files, int mergeDepth, OutputStream out) throws IOException, XMLStreamException {
+        if(mergeDepth < 1) {
+            throw new IllegalArgumentException("Merge depth must be a positive number: " + mergeDepth);
+        }
+        final XMLEventWriter writer = getOutputFactory().createXMLEventWriter(out, ENCODING);
+        try (InputStream firstIn = Files.newInputStream(files.get(0))) {
+            final XMLEventReader first = getInputFactory().createXMLEventReader(firstIn);
+            try {
+                int depth = 0;
+                boolean merged = false;
+                while (first.hasNext()) {
+                    final XMLEvent event = first.nextEvent();
+                    if (event.isStartElement()) {
+                        ++depth;
+                    } else if (event.isEndElement()) {
+                        if (!merged && depth == mergeDepth) {
+                            for (int i = 1; i < files.size(); ++i) {
+                                appendContent(files.get(i), mergeDepth, writer);
+                            }
+                            merged = true;
+                        }
+                        --depth;
+                    }
+                    if (event.isStartDocument()) {
+                        // the merged document is always encoded in UTF-8, whatever the encoding of the first document
+                        final StartDocument start = (StartDocument) event;
+                        writer.add(start.standaloneSet() ? EVENTS.createStartDocument(ENCODING, start.getVersion(), start.isStandalone())
+                                : EVENTS.createStartDocument(ENCODING, start.getVersion()));
+                    } else {
+                        writer.add(event);
+                    }
+                }
+                if (!merged) {
+                    throw new XMLStreamException(files.get(0) + " does not contain elements at depth " + mergeDepth);
+                }
+            } finally {
+                first.close();
+            }
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void appendContent(Path file, int mergeDepth, XMLEventWriter writer) throws IOException, XMLStreamException {
+        try (InputStream in = Files.newInputStream(file)) {
+            final XMLEventReader reader = getInputFactory().createXMLEventReader(in);
+            try {
+                int depth = 0;
+                // the namespaces declared on the elements that are not copied
+                List<Namespace> outerNamespaces = Collections.emptyList();
+                while (reader.hasNext()) {
+                    final XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        final StartElement start = event.asStartElement();
+                        if (++depth <= mergeDepth) {
+                            final Iterator<?> i = start.getNamespaces();
+                            while (i.hasNext()) {
+                                outerNamespaces = CollectionUtils.add(outerNamespaces, (Namespace) i.next());
+                            }
+                        } else if (depth == mergeDepth + 1 && !outerNamespaces.isEmpty()) {
+                            writer.add(withNamespaces(start, outerNamespaces));
+                        } else {
+                            writer.add(event);
+                        }
+                    } else if (event.isEndElement()) {
+                        if (depth-- == mergeDepth) {
+                            return;
+                        }
+                        writer.add(event);
+                    } else if (depth >= mergeDepth && !event.isStartDocument() && !event.isEndDocument()) {
+                        writer.add(event);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static StartElement withNamespaces(StartElement start, List<Namespace> outerNamespaces) {
+        final Map<String, Namespace> namespaces = new LinkedHashMap<>();
+        for (Namespace ns : outerNamespaces) {
+            namespaces.put(ns.getPrefix(), ns);
+        }
+        final Iterator<?> i = start.getNamespaces();
+        while (i.hasNext()) {
+            final Namespace ns = (Namespace) i.next();
+            namespaces.put(ns.getPrefix(), ns);
+        }
+        return EVENTS.createStartElement(start.getName(), start.getAttributes(), namespaces.values().iterator());
+    }
+}
@@ -132,6 +132,7 @@ class WildFlyPackageTasksParser20 implements XMLElementReader<WildFlyPackageTask
         GROUP("group"),
         IF_EMPTY("if-empty"),
         INCLUDE("include"),
+        MERGE_DEPTH("merge-depth"),
         MODEL("model"),
         NAME("name"),
         OPTIONAL("optional"),
@@ -144,6 +145,7 @@ class WildFlyPackageTasksParser20 implements XMLElementReader<WildFlyPackageTask
         RECURSIVE("recursive"),
         REPLACE_PROPERTIES("replace-props"),
         SRC("src"),
+        STREAMING("streaming"),
         STYLESHEET("stylesheet"),
         TARGET("target"),
         TO_LOCATION("to-location"),
@@ -155,7 +157,7 @@ class WildFlyPackageTasksParser20 implements XMLElementReader<WildFlyPackageTask
         private static final Map<QName, Attribute> attributes;
 
         static {
-            Map<QName, Attribute> attributesMap = new HashMap<>(24);
+            Map<QName, Attribute> attributesMap = new HashMap<>(26);
             attributesMap.put(new QName(ARTIFACT.getLocalName()), ARTIFACT);
             attributesMap.put(new QName(BASEDIR.getLocalName()), BASEDIR);
             attributesMap.put(new QName(EXTRACT.getLocalName()), EXTRACT);
@@ -164,6 +166,7 @@ class WildFlyPackageTasksParser20 implements XMLElementReader<WildFlyPackageTask
             attributesMap.put(new QName(GROUP.getLocalName()), GROUP);
             attributesMap.put(new QName(IF_EMPTY.getLocalName()), IF_EMPTY);
             attributesMap.put(new QName(INCLUDE.getLocalName()), INCLUDE);
+            attributesMap.put(new QName(MERGE_DEPTH.getLocalName()), MERGE_DEPTH);
             attributesMap.put(new QName(MODEL.getLocalName()), MODEL);
             attributesMap.put(new QName(NAME.getLocalName()), NAME);
             attributesMap.put(new QName(ORIGIN.getLocalName()), ORIGIN);
@@ -176,6 +179,7 @@ class WildFlyPackageTasksParser20 implements XMLElementReader<WildFlyPackageTask
             attributesMap.put(new QName(RELATIVE_TO.getLocalName()), RELATIVE_TO);
             attributesMap.put(new QName(REPLACE_PROPERTIES.getLocalName()), REPLACE_PROPERTIES);
             attributesMap.put(new QName(SRC.getLocalName()), SRC);
+            attributesMap.put(new QName(STREAMING.getLocalName()), STREAMING);
             attributesMap.put(new QName(STYLESHEET.getLocalName()), STYLESHEET);
             attributesMap.put(new QName(TARGET.getLocalName()), TARGET);
             attributesMap.put(new QName(TO_LOCATION.getLocalName()), TO_LOCATION);
@@ -759,6 +763,18 @@ class WildFlyPackageTasksParser20 implements XMLElementReader<WildFlyPackageTask
                 case BASEDIR:
                     builder.setBasedir(reader.getAttributeValue(i));
                     break;
+                case STREAMING:
+                    if(Boolean.parseBoolean(reader.getAttributeValue(i))) {
+                        builder.setStreaming();
+                    }
+                    break;
+                case MERGE_DEPTH:
+                    try {
+                        builder.setMergeDepth(Integer.parseInt(reader.getAttributeValue(i)));
+                    } catch (NumberFormatException e) {
+                        throw new XMLStreamException("Failed to parse " + Attribute.MERGE_DEPTH.getLocalName() + " value " + reader.getAttributeValue(i), reader.getLocation(), e);
+                    }
+                    break;
                 default:
                     throw ParsingUtils.unexpectedContent(reader);
             }
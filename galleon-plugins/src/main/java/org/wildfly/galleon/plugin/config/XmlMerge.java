@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -43,13 +44,37 @@ import org.wildfly.galleon.plugin.WildFlyPackageTask;
  */
 public class XmlMerge implements WildFlyPackageTask {
 
+    /**
+     * Depth of the license summary dependencies, which are what the merger.xsl of the WildFly feature-packs merges.
+     */
+    static final int DEFAULT_MERGE_DEPTH = 2;
+
     private String basedir;
     private List<FileFilter> filters = Collections.emptyList();
+    private FileFilterSet filterSet;
     private String output;
+    private boolean streaming;
+    private int mergeDepth = DEFAULT_MERGE_DEPTH;
 
     public XmlMerge() {
     }
 
+    /**
+     * Merges the files with {@link StreamingXmlMerger} instead of the merger.xsl of the package.
+     * The streaming merge does not read the merger.xsl, so the merge depth has to be set to the depth
+     * the stylesheet merges at, unless it is the default one.
+     */
+    public void setStreaming() {
+        this.streaming = true;
+    }
+
+    /**
+     * Sets the depth of the elements whose content is merged when streaming, the root element being at depth 1.
+     */
+    public void setMergeDepth(int mergeDepth) {
+        this.mergeDepth = mergeDepth;
+    }
+
     public void setBasedir(String basedir) {
         this.basedir = basedir;
     }
@@ -60,15 +85,16 @@ public class XmlMerge implements WildFlyPackageTask {
 
     public void addFilter(FileFilter filter) {
         filters = CollectionUtils.add(filters, filter);
+        filterSet = null;
     }
 
     public boolean includeFile(final String path) {
-        for(FileFilter filter : filters) {
-            if(filter.matches(path)) {
-                return filter.isInclude();
-            }
+        FileFilterSet filterSet = this.filterSet;
+        if(filterSet == null) {
+            filterSet = new FileFilterSet(filters, false); //default include
+            this.filterSet = filterSet;
         }
-        return false; //default include
+        return filterSet.includeFile(path);
     }
 
     @Override
@@ -76,6 +102,16 @@ public class XmlMerge implements WildFlyPackageTask {
         return Phase.FINALIZING;
     }
 
+    @Override
+    public List<String> getInputPaths() {
+        return Collections.singletonList(basedir == null ? "" : basedir);
+    }
+
+    @Override
+    public List<String> getOutputPaths() {
+        return Collections.singletonList(output);
+    }
+
     @Override
     public void execute(WfInstallPlugin plugin, PackageRuntime pkg) throws ProvisioningException {
 
@@ -88,38 +124,51 @@ public class XmlMerge implements WildFlyPackageTask {
             return;
         }
 
-        // collect the files to merge into a comma-separated list
-        final StringBuilder buf = new StringBuilder();
+        final List<Path> files = new ArrayList<>();
         try(DirectoryStream<Path> stream = Files.newDirectoryStream(srcDir)) {
             for(Path p : stream) {
                 if(includeFile(p.toString())) {
-                    if(buf.length() > 0) {
-                        buf.append(',');
-                    }
-                    buf.append(p.toString());
+                    files.add(p);
                 }
             }
         } catch (IOException e) {
             throw new ProvisioningException(Errors.readDirectory(srcDir));
         }
-        if(buf.length() == 0) {
+        if(files.isEmpty()) {
             return;
         }
 
+        final Path mergedXml = plugin.getRuntime().getStagedDir().resolve(output);
+        if(streaming) {
+            try(OutputStream out = Files.newOutputStream(mergedXml)) {
+                StreamingXmlMerger.merge(files, mergeDepth, out);
+            } catch (Exception e) {
+                throw new ProvisioningException("Failed to merge " + files + " into " + mergedXml, e);
+            }
+            return;
+        }
+
+        // collect the files to merge into a comma-separated list
+        final StringBuilder buf = new StringBuilder();
+        for(Path p : files) {
+            if(buf.length() > 0) {
+                buf.append(',');
+            }
+            buf.append(p.toString());
+        }
+
         final Path pmWf = pkg.getResource(WfConstants.PM, WfConstants.WILDFLY);
         final Path mergerXsl = pmWf.resolve("merger.xsl");
         if(!Files.exists(mergerXsl)) {
             throw new ProvisioningException(Errors.pathDoesNotExist(mergerXsl));
         }
 
-        final Path mergedXml = plugin.getRuntime().getStagedDir().resolve(output);
-
         try(OutputStream out = Files.newOutputStream(mergedXml)) {
             final Transformer transformer = plugin.getXslTransformer(mergerXsl);
             transformer.setParameter("fileList", buf.toString());
             transformer.setParameter("fileSeparator", File.separator);
 
-            final DOMSource source = new DOMSource(plugin.getXmlDocumentBuilderFactory().newDocumentBuilder().newDocument());
+            final DOMSource source = new DOMSource(plugin.newXmlDocumentBuilder().newDocument());
 
             final StreamResult result = new StreamResult(out);
             transformer.transform(source, result);
@@ -16,7 +16,9 @@
  */
 package org.wildfly.galleon.plugin.config;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.jboss.galleon.ProvisioningException;
@@ -94,6 +96,16 @@ public class XslTransform implements WildFlyPackageTask {
         return phase;
     }
 
+    @Override
+    public List<String> getInputPaths() {
+        return Arrays.asList(src, stylesheet);
+    }
+
+    @Override
+    public List<String> getOutputPaths() {
+        return Collections.singletonList(output);
+    }
+
     @Override
     public void execute(WfInstallPlugin plugin, PackageRuntime pkg) throws ProvisioningException {
         try {
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.jboss.galleon.ProvisioningException;
+import org.jboss.galleon.universe.maven.MavenArtifact;
+import org.junit.Test;
+
+/**
+ * Checks that the coordinates parsing of {@link Utils} and {@link ArtifactCoordsCache} behaves exactly as
+ * the {@code String.split(":")} based parsing it replaced.
+ */
+public class ArtifactCoordsTest {
+
+    private static final String[] COORDS = {
+            "g:a", "g:a:1.0", "g:a:1.0:cl", "g:a:1.0:cl:war", "g:a:1.0:cl:war:x", "g:a:1.0:cl::x",
+            // empty parts
+            "", ":", "::", ":::::", "g", ":a", "g::1.0", "::1.0", "g:a::cl", "g:a:1.0::war", "g:a:::war", "g:a:1.0:cl:",
+            // trailing colons
+            "g:", "g:a:", "g:a::", "g:a:1.0:", "g:a:1.0::", "g:a:1.0:::", "g:a:1.0:cl:war:", "g:a:1.0:cl:war::", "g:a:1.0::war:",
+            // classifier only
+            "g:a::linux", "g:a::linux:", "g:a::linux:zip", "g:a:1.0:linux",
+            // unresolved versions
+            "un:resolved", "un:resolved::cl", "short:version", "trailing:colons", "empty:version",
+    };
+
+    private static final Map<String, String> VERSIONS = new HashMap<>();
+    static {
+        VERSIONS.put("g:a", "g:a:2.0::jar");
+        VERSIONS.put("g:", "g::3.0");
+        VERSIONS.put(":a", ":a:4.0");
+        VERSIONS.put("g:g", "g:g:5.0");
+        VERSIONS.put("short:version", "short:version");
+        VERSIONS.put("trailing:colons", "trailing:colons:::");
+        VERSIONS.put("empty:version", "empty:version::cl");
+    }
+
+    @Test
+    public void testSplitCoords() {
+        final String[] strs = Arrays.copyOf(COORDS, COORDS.length + 4);
+        strs[COORDS.length] = "a:b:c:d:e:f:g";
+        strs[COORDS.length + 1] = ":::a";
+        strs[COORDS.length + 2] = "a:::b::";
+        strs[COORDS.length + 3] = "a:b";
+        for (String str : strs) {
+            final String[] expected = str.split(":");
+            for (int size = 0; size <= 8; ++size) {
+                final String[] parts = new String[size];
+                assertEquals(str, expected.length, Utils.splitCoords(str, parts));
+                for (int i = 0; i < size; ++i) {
+                    assertEquals(str + " part " + i, i < expected.length ? expected[i] : null, parts[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testResolveCoords() throws Exception {
+        assertArrayEquals(new String[] {"g", "a", "1.0", null, null}, Utils.resolveCoords(VERSIONS, "g:a:1.0", false));
+        assertArrayEquals(new String[] {"g", "a", "2.0", "", "war"}, Utils.resolveCoords(VERSIONS, "g:a:::war", false));
+        assertArrayEquals(new String[] {"g", "a", "2.0", "linux", null}, Utils.resolveCoords(VERSIONS, "g:a::linux:", false));
+        assertNull(Utils.resolveCoords(VERSIONS, "un:resolved", true));
+    }
+
+    @Test
+    public void testSameAsSplit() throws Exception {
+        for (String str : COORDS) {
+            for (boolean optional : new boolean[] {true, false}) {
+                final String expected = outcome(() -> splitToArtifactCoords(VERSIONS, str, optional));
+                assertEquals(str + " optional " + optional, expected, outcome(() -> Utils.toArtifactCoords(VERSIONS, str, optional)));
+            }
+        }
+    }
+
+    @Test
+    public void testCacheSameAsSplit() throws Exception {
+        for (boolean optionalFirst : new boolean[] {true, false}) {
+            final ArtifactCoordsCache cache = new ArtifactCoordsCache();
+            for (String str : COORDS) {
+                // the second and the third calls are served from the cache, including the UNRESOLVED sentinel
+                for (boolean optional : new boolean[] {optionalFirst, !optionalFirst, optionalFirst}) {
+                    final String expected = outcome(() -> splitToArtifactCoords(VERSIONS, str, optional));
+                    assertEquals(str + " optional " + optional, expected, outcome(() -> cache.toArtifactCoords(VERSIONS, str, optional)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCacheIsPerVersionsMap() throws Exception {
+        final ArtifactCoordsCache cache = new ArtifactCoordsCache();
+        assertEquals("null", outcome(() -> cache.toArtifactCoords(VERSIONS, "un:resolved", true)));
+        final Map<String, String> versions = new HashMap<>(VERSIONS);
+        versions.put("un:resolved", "un:resolved:1.0");
+        assertEquals("un:resolved:1.0:null:jar", outcome(() -> cache.toArtifactCoords(versions, "un:resolved", true)));
+        assertEquals("null", outcome(() -> cache.toArtifactCoords(VERSIONS, "un:resolved", true)));
+    }
+
+    private static String outcome(Callable<MavenArtifact> call) {
+        final MavenArtifact artifact;
+        try {
+            artifact = call.call();
+        } catch (Exception e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        if (artifact == null) {
+            return "null";
+        }
+        return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getVersion() + ':'
+                + artifact.getClassifier() + ':' + artifact.getExtension();
+    }
+
+    /**
+     * The original implementation of {@link Utils#toArtifactCoords(Map, String, boolean)}.
+     */
+    private static MavenArtifact splitToArtifactCoords(Map<String, String> versionProps, String str, boolean optional) throws ProvisioningException {
+        String[] parts = str.split(":");
+        if(parts.length < 2) {
+            throw new IllegalArgumentException("Unexpected artifact coordinates format: " + str);
+        }
+        final MavenArtifact artifact = new MavenArtifact();
+        artifact.setGroupId(parts[0]);
+        artifact.setArtifactId(parts[1]);
+        artifact.setExtension(MavenArtifact.EXT_JAR);
+        if(parts.length > 2) {
+            if(!parts[2].isEmpty()) {
+                artifact.setVersion(parts[2]);
+            }
+            if(parts.length > 3) {
+                artifact.setClassifier(parts[3]);
+                if(parts.length > 4 && !parts[4].isEmpty()) {
+                    artifact.setExtension(parts[4]);
+                    if (parts.length > 5) {
+                        throw new IllegalArgumentException("Unexpected artifact coordinates format: " + str);
+                    }
+                }
+            }
+        }
+
+        if(!artifact.hasVersion()) {
+            final String resolvedStr = versionProps.get(artifact.getGroupId() + ':' + artifact.getArtifactId());
+            if (resolvedStr == null) {
+                if (optional) {
+                    return null;
+                }
+                throw new ProvisioningException("Failed to resolve the version of " + artifact.getGroupId() + ':' + artifact.getArtifactId());
+            }
+            parts = resolvedStr.split(":");
+            if (parts.length < 3) {
+                throw new ProvisioningException("Failed to resolve the version for artifact: " + resolvedStr);
+            }
+            artifact.setVersion(parts[2]);
+        }
+        return artifact;
+    }
+}
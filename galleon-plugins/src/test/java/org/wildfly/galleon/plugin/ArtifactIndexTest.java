@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArtifactIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testDuplicatesAreCollapsed() throws Exception {
+        final Path file = tmp.getRoot().toPath().resolve("index.txt");
+        Files.write(file, ("# WildFly artifact index 1\n"
+                + "g:a\t\tpkg\torg.a\n"
+                + "g:a\t\tpkg\torg.a\n"
+                + "g:a\t\tpkg\torg.a:1.0\n"
+                + "g:a:linux\t\tpkg\torg.a\n").getBytes(StandardCharsets.UTF_8));
+        final ArtifactIndex fpIndex = ArtifactIndex.load(file);
+        assertEquals("[pkg (org.a), pkg (org.a:1.0)]", fpIndex.get("g", "a", null).toString());
+        assertEquals("[pkg (org.a)]", fpIndex.get("g:a:linux").toString());
+
+        final ArtifactIndex index = new ArtifactIndex();
+        index.addAll("fp1", fpIndex, pkg -> true);
+        index.addAll("fp1", fpIndex, pkg -> true);
+        index.addAll("fp2", fpIndex, pkg -> true);
+        assertEquals("[fp1 pkg (org.a), fp1 pkg (org.a:1.0), fp2 pkg (org.a), fp2 pkg (org.a:1.0)]", index.get("g:a").toString());
+
+        index.store(file);
+        assertEquals(index.get("g:a"), ArtifactIndex.load(file).get("g:a"));
+    }
+}
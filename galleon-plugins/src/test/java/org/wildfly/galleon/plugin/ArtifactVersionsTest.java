@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jboss.galleon.ProvisioningException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArtifactVersionsTest {
+
+    private static final Map<String, String> VERSIONS = new LinkedHashMap<>();
+    static {
+        VERSIONS.put("org.wildfly.core:wildfly-server", "org.wildfly.core:wildfly-server:10.0.0.Final::jar");
+        VERSIONS.put("io.undertow:undertow-core", "io.undertow:undertow-core:2.0.19.Final::jar");
+        VERSIONS.put("org.jboss:jboss-native::linux-x86_64", "org.jboss:jboss-native:1.0:linux-x86_64:jar");
+        VERSIONS.put("org.caf\u00e9:caf\u00e9", "org.caf\u00e9:caf\u00e9:1.0::jar");
+    }
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path dir;
+    private Path props;
+    private Path index;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = tmp.getRoot().toPath();
+        props = dir.resolve(WfConstants.ARTIFACT_VERSIONS_PROPS);
+        index = dir.resolve(WfConstants.ARTIFACT_VERSIONS_INDEX);
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        writeVersions(VERSIONS);
+        final Map<String, String> versions = ArtifactVersions.load(dir);
+        assertEquals(VERSIONS.size(), versions.size());
+        for (Map.Entry<String, String> entry : VERSIONS.entrySet()) {
+            assertEquals(entry.getValue(), versions.get(entry.getKey()));
+        }
+        assertNull(versions.get("org.wildfly.core:wildfly-serve"));
+        assertNull(versions.get("zzz"));
+        assertEquals(new TreeMap<>(VERSIONS), new TreeMap<>(versions));
+
+        Files.delete(props);
+        assertEquals(new TreeMap<>(VERSIONS), new TreeMap<>(ArtifactVersions.load(dir)));
+    }
+
+    @Test
+    public void testPropertiesOnly() throws Exception {
+        assertNull(ArtifactVersions.load(dir));
+        writeVersions(VERSIONS);
+        Files.delete(index);
+        assertEquals(new TreeMap<>(VERSIONS), new TreeMap<>(ArtifactVersions.load(dir)));
+    }
+
+    @Test
+    public void testEditedPropertiesWinOverStaleIndex() throws Exception {
+        writeVersions(VERSIONS);
+        final Map<String, String> edited = new LinkedHashMap<>(VERSIONS);
+        edited.put("io.undertow:undertow-core", "io.undertow:undertow-core:2.0.20.Final::jar");
+        storeProperties(edited);
+        touch(props, index);
+        assertEquals("io.undertow:undertow-core:2.0.20.Final::jar", ArtifactVersions.load(dir).get("io.undertow:undertow-core"));
+    }
+
+    @Test
+    public void testIndexIsUsedIfNewerPropertiesAreUnchanged() throws Exception {
+        writeVersions(VERSIONS);
+        touch(props, index);
+        // the index map is not mutable, unlike the map the properties are loaded into
+        final Map<String, String> versions = ArtifactVersions.load(dir);
+        try {
+            versions.put("a", "b");
+            fail("The properties were loaded instead of the index");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCorruptedIndex() throws Exception {
+        writeVersions(VERSIONS);
+        final byte[] bytes = Files.readAllBytes(index);
+
+        // truncated anywhere
+        for (int length = 0; length < bytes.length; ++length) {
+            assertCorrupted(Arrays.copyOf(bytes, length));
+        }
+
+        // the number of entries does not fit
+        ByteBuffer buf = ByteBuffer.wrap(bytes.clone());
+        buf.putInt(20, VERSIONS.size() + 1000);
+        assertCorrupted(buf.array());
+        buf = ByteBuffer.wrap(bytes.clone());
+        buf.putInt(20, -1);
+        assertCorrupted(buf.array());
+
+        // an offset points into the offset table or beyond the end
+        buf = ByteBuffer.wrap(bytes.clone());
+        buf.putInt(24, 24);
+        assertCorrupted(buf.array());
+        buf = ByteBuffer.wrap(bytes.clone());
+        buf.putInt(28, bytes.length - 2);
+        assertCorrupted(buf.array());
+
+        // a length goes beyond the end
+        buf = ByteBuffer.wrap(bytes.clone());
+        buf.putInt(buf.getInt(24), bytes.length);
+        assertCorrupted(buf.array());
+        buf = ByteBuffer.wrap(bytes.clone());
+        buf.putInt(buf.getInt(24), -1);
+        assertCorrupted(buf.array());
+
+        // the keys are not sorted
+        buf = ByteBuffer.wrap(bytes.clone());
+        final int first = buf.getInt(24);
+        buf.putInt(24, buf.getInt(32));
+        buf.putInt(32, first);
+        assertCorrupted(buf.array());
+
+        // not an index
+        buf = ByteBuffer.wrap(bytes.clone());
+        buf.putInt(0, 0);
+        assertCorrupted(buf.array());
+        buf = ByteBuffer.wrap(bytes.clone());
+        buf.putInt(4, 1);
+        assertCorrupted(buf.array());
+    }
+
+    private void assertCorrupted(byte[] bytes) throws Exception {
+        Files.write(index, bytes);
+        Files.delete(props);
+        try {
+            ArtifactVersions.load(dir).get("io.undertow:undertow-core");
+            fail("Corrupted index of " + bytes.length + " bytes was loaded");
+        } catch (ProvisioningException e) {
+            // expected
+        } finally {
+            storeProperties(VERSIONS);
+            touch(index, props);
+        }
+    }
+
+    private void writeVersions(Map<String, String> versions) throws Exception {
+        storeProperties(versions);
+        ArtifactVersions.writeIndex(versions, props, index);
+        touch(index, props);
+    }
+
+    private void storeProperties(Map<String, String> versions) throws Exception {
+        final StringBuilder buf = new StringBuilder();
+        for (Map.Entry<String, String> entry : versions.entrySet()) {
+            buf.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        Files.write(props, buf.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Makes the first file newer than the second one.
+     */
+    private static void touch(Path newer, Path older) throws Exception {
+        final long time = Files.getLastModifiedTime(older).toMillis();
+        Files.setLastModifiedTime(newer, FileTime.fromMillis(time + 2000));
+        assertFalse(Files.getLastModifiedTime(newer).compareTo(Files.getLastModifiedTime(older)) <= 0);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.jboss.galleon.DefaultMessageWriter;
+import org.jboss.galleon.MessageWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the serial and the parallel Jandex indexing of jars.
+ *
+ * By default a synthetic jar is indexed, made of the given number of classes copied from the classpath.
+ * Real jars, e.g. the Hibernate or RESTEasy bundles, can be benchmarked by passing their paths to the runner,
+ * e.g. {@code -p jar=/path/to/hibernate-core.jar}.
+ * Jars with fewer classes than {@link JandexIndexer#PARALLEL_THRESHOLD} are rejected, since the parallel
+ * indexing falls back to the serial one for them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JandexIndexerBenchmark {
+
+    /**
+     * Number of classes in the synthetic jar.
+     */
+    @Param({"1000", "4000"})
+    public int classes;
+
+    /**
+     * Path to the jar to index instead of the synthetic one.
+     */
+    @Param({""})
+    public String jar;
+
+    private File jarFile;
+    private boolean synthetic;
+    private ParallelExecutor executor;
+    private final MessageWriter log = new DefaultMessageWriter();
+
+    @Setup
+    public void setup() throws Exception {
+        final int count;
+        if (jar.isEmpty()) {
+            jarFile = Files.createTempFile("jandex-benchmark", ".jar").toFile();
+            synthetic = true;
+            count = JandexIndexerTest.copyClasspathClasses(jarFile.toPath(), classes);
+        } else {
+            jarFile = new File(jar);
+            count = countClasses(jarFile);
+        }
+        if (count < JandexIndexer.PARALLEL_THRESHOLD) {
+            throw new IllegalStateException(jarFile + " contains " + count + " classes, the parallel indexing requires at least "
+                    + JandexIndexer.PARALLEL_THRESHOLD);
+        }
+        executor = new ParallelExecutor(Runtime.getRuntime().availableProcessors());
+        System.out.println("Indexing " + count + " classes of " + jarFile + " serially and in parallel using "
+                + Runtime.getRuntime().availableProcessors() + " threads");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.close();
+        if (synthetic) {
+            Files.delete(jarFile.toPath());
+        }
+    }
+
+    private static int countClasses(File file) throws IOException {
+        int count = 0;
+        try (JarFile jarFile = new JarFile(file)) {
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                if (entries.nextElement().getName().endsWith(".class")) {
+                    ++count;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public byte[] serial() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JandexIndexer.createIndex(jarFile, out, log);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] parallel() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JandexIndexer.createIndex(jarFile, out, log, executor);
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JandexIndexerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.galleon.DefaultMessageWriter;
+import org.jboss.galleon.MessageWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JandexIndexerTest {
+
+    private static final int CLASSES = 2000;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final MessageWriter log = new DefaultMessageWriter();
+
+    @Test
+    public void testParallelIndexIsIdenticalToSerial() throws Exception {
+        final File jar = tmp.newFile("classes.jar");
+        final int classes = copyClasspathClasses(jar.toPath(), CLASSES);
+        assertTrue("Not enough classes on the classpath to index in parallel: " + classes, classes >= JandexIndexer.PARALLEL_THRESHOLD);
+
+        final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        JandexIndexer.createIndex(jar, serial, log);
+
+        final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        try (ParallelExecutor executor = new ParallelExecutor(4)) {
+            JandexIndexer.createIndex(jar, parallel, log, executor);
+        }
+
+        assertArrayEquals(readIndex(serial.toByteArray()), readIndex(parallel.toByteArray()));
+    }
+
+    /**
+     * Copies the classes of the jars on the test classpath and, if there are not enough of them,
+     * on the boot classpath to a single jar.
+     *
+     * @return  the number of the copied classes
+     */
+    static int copyClasspathClasses(Path target, int max) throws IOException {
+        String classpath = System.getProperty("java.class.path");
+        final String bootClasspath = System.getProperty("sun.boot.class.path");
+        if (bootClasspath != null) {
+            classpath += File.pathSeparator + bootClasspath;
+        }
+        final Set<String> names = new HashSet<>();
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+            for (String element : classpath.split(File.pathSeparator)) {
+                if (!element.endsWith(".jar") || !new File(element).isFile() || names.size() == max) {
+                    continue;
+                }
+                try (JarFile jar = new JarFile(element)) {
+                    final Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements() && names.size() < max) {
+                        final JarEntry entry = entries.nextElement();
+                        final String name = entry.getName();
+                        if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")
+                                || !names.add(name)) {
+                            continue;
+                        }
+                        out.putNextEntry(new ZipEntry(name));
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            copy(in, out);
+                        }
+                        out.closeEntry();
+                    }
+                }
+            }
+        }
+        return names.size();
+    }
+
+    /**
+     * Returns the content of the index entry, the zip headers include the time of creation.
+     */
+    private static byte[] readIndex(byte[] indexJar) throws IOException {
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(indexJar))) {
+            ZipEntry entry = in.getNextEntry();
+            while (entry != null) {
+                if (entry.getName().equals("META-INF/jandex.idx")) {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    copy(in, out);
+                    return out.toByteArray();
+                }
+                entry = in.getNextEntry();
+            }
+        }
+        throw new IOException("The index jar does not include META-INF/jandex.idx");
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        final byte[] buf = new byte[8192];
+        int read;
+        while ((read = in.read(buf)) > 0) {
+            out.write(buf, 0, read);
+        }
+    }
+}
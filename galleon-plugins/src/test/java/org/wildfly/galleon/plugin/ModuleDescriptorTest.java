@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModuleDescriptorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testHardCodedCoords() {
+        assertEquals("org.jboss:jboss-foo:::1.0.Final", new ModuleDescriptor.Artifact("org.jboss:jboss-foo:1.0.Final").getHardCodedCoords());
+        assertEquals("org.jboss:jboss-foo::linux-x86_64:1.0.Final",
+                new ModuleDescriptor.Artifact("org.jboss:jboss-foo:1.0.Final:linux-x86_64").getHardCodedCoords());
+        assertNull(new ModuleDescriptor.Artifact("${org.jboss:jboss-foo}").getHardCodedCoords());
+        assertNull(new ModuleDescriptor.Artifact("${org.jboss:jboss-foo?jandex}").getHardCodedCoords());
+    }
+
+    @Test
+    public void testInvalidHardCodedCoords() {
+        for (String name : new String[] {"org.jboss:jboss-foo", "org.jboss:jboss-foo:1.0:x:y", "org.jboss:jboss foo:1.0", "${org.jboss:jboss-foo"}) {
+            try {
+                new ModuleDescriptor.Artifact(name).getHardCodedCoords();
+                fail(name);
+            } catch (IllegalArgumentException e) {
+                assertEquals("Hard coded artifact " + name, e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testParseWithEncoding() throws Exception {
+        final Path moduleXml = tmp.getRoot().toPath().resolve("module.xml");
+        Files.write(moduleXml, ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                + "<module xmlns=\"urn:jboss:module:1.9\" name=\"org.caf\u00e9\" slot=\"s\">\n"
+                + "    <properties><property name=\"p\" value=\"na\u00efve\"/></properties>\n"
+                + "    <resources><artifact name=\"org.jboss:jboss-foo:1.0.Final\"/><resource-root path=\"lib\"/></resources>\n"
+                + "    <dependencies><module name=\"a\" optional=\"true\"/><module name=\"b:1.0\"/></dependencies>\n"
+                + "</module>\n").getBytes(StandardCharsets.ISO_8859_1));
+
+        final ModuleDescriptor descriptor = ModuleDescriptor.parse(moduleXml, "ISO-8859-1");
+        assertTrue(descriptor.isModule());
+        assertEquals("org.caf\u00e9", descriptor.getName());
+        assertEquals("s", descriptor.getSlot());
+        assertEquals("na\u00efve", descriptor.getProperties().get("p"));
+        assertEquals("org.jboss:jboss-foo:1.0.Final", descriptor.getArtifacts().get(0).getCoords());
+        assertEquals("lib", descriptor.getResourceRoots().get(0));
+        assertEquals(2, descriptor.getDependencies().size());
+        assertTrue(descriptor.getDependencies().get(0).isOptional());
+        assertEquals("b", descriptor.getDependencies().get(1).getName());
+        assertEquals("1.0", descriptor.getDependencies().get(1).getSlot());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModuleFingerprintsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+        final Path jar = write("a.jar", "jar content");
+        final Path moduleXml = write("module.xml", "<module/>");
+
+        final ModuleFingerprints fingerprints = new ModuleFingerprints();
+        final Map<String, ModuleFingerprints.FileHash> files = new LinkedHashMap<>();
+        files.put("a.jar", ModuleFingerprints.FileHash.of(jar, Utils.sha1(jar)));
+        files.put("module.xml", ModuleFingerprints.FileHash.of(moduleXml, Utils.sha1(moduleXml)));
+        fingerprints.put("org/a/main/module.xml", new ModuleFingerprints.Module("inputs", files));
+        fingerprints.putArtifact(jar, ModuleFingerprints.FileHash.of(jar, Utils.sha1(jar)));
+
+        final Path manifest = tmp.getRoot().toPath().resolve(".galleon").resolve(ModuleFingerprints.MANIFEST);
+        fingerprints.store(manifest);
+        final ModuleFingerprints loaded = ModuleFingerprints.load(manifest);
+
+        final ModuleFingerprints.Module module = loaded.get("org/a/main/module.xml");
+        assertNotNull(module);
+        assertEquals("inputs", module.inputsHash);
+        assertEquals(Arrays.asList("a.jar", "module.xml"), Arrays.asList(module.files.keySet().toArray()));
+        final ModuleFingerprints.FileHash jarHash = module.files.get("a.jar");
+        assertEquals(Utils.sha1(jar), jarHash.hash);
+        assertEquals(Files.size(jar), jarHash.size);
+        assertEquals(Files.getLastModifiedTime(jar).toMillis(), jarHash.lastModified);
+        assertTrue(jarHash.isUnchanged(jar));
+
+        assertNotNull(loaded.getArtifact(jar));
+        assertEquals(Utils.sha1(jar), loaded.getArtifact(jar).hash);
+        assertNull(loaded.getArtifact(moduleXml));
+    }
+
+    @Test
+    public void testChangedArtifactIsNotReturned() throws Exception {
+        final Path jar = write("a.jar", "jar content");
+        final ModuleFingerprints fingerprints = new ModuleFingerprints();
+        fingerprints.putArtifact(jar, ModuleFingerprints.FileHash.of(jar, Utils.sha1(jar)));
+        assertNotNull(fingerprints.getArtifact(jar));
+
+        final FileTime lastModified = Files.getLastModifiedTime(jar);
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(lastModified.toMillis() + 2000));
+        assertNull(fingerprints.getArtifact(jar));
+
+        write("a.jar", "jar content changed");
+        Files.setLastModifiedTime(jar, lastModified);
+        assertNull(fingerprints.getArtifact(jar));
+
+        Files.delete(jar);
+        assertNull(fingerprints.getArtifact(jar));
+    }
+
+    @Test
+    public void testUnrecognizedManifestIsIgnored() throws Exception {
+        final Path manifest = write(ModuleFingerprints.MANIFEST, "# WildFly module fingerprints 1\nM\torg/a/main/module.xml\tinputs\n");
+        assertNull(ModuleFingerprints.load(manifest).get("org/a/main/module.xml"));
+        assertNull(ModuleFingerprints.load(tmp.getRoot().toPath().resolve("missing.txt")).get("org/a/main/module.xml"));
+    }
+
+    private Path write(String name, String content) throws Exception {
+        final Path file = tmp.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nu.xom.Attribute;
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Elements;
+import nu.xom.Serializer;
+
+/**
+ * Compares the output of {@link ModuleXmlRewriter} with the output of the XOM based processing
+ * of the module templates it replaced.
+ */
+public class ModuleXmlRewriterTest {
+
+    private static final String[] TEMPLATES = {"server.xml", "alias.xml", "versioned.xml", "thin.xml"};
+
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n";
+
+    private static final Map<String, String> VERSIONS = new HashMap<>();
+    // artifact name -> element, attribute, value
+    private static final Map<String, String[]> ARTIFACTS = new HashMap<>();
+    static {
+        VERSIONS.put("${io.undertow:undertow-core}", "2.0.19.Final");
+        ARTIFACTS.put("${org.wildfly.core:wildfly-server}",
+                new String[] {"resource-root", "path", "wildfly-server-10.0.0.Final.jar"});
+        ARTIFACTS.put("${org.wildfly.core:wildfly-server-jandex?jandex}",
+                new String[] {"resource-root", "path", "wildfly-server-jandex-10.0.0.Final-jandex.jar"});
+        ARTIFACTS.put("${io.undertow:undertow-core}",
+                new String[] {"resource-root", "path", "undertow-core-2.0.19.Final.jar"});
+        ARTIFACTS.put("${org.wildfly.core:wildfly-io}",
+                new String[] {"artifact", "name", "org.wildfly.core:wildfly-io:10.0.0.Final"});
+    }
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsXom() throws Exception {
+        for (String name : TEMPLATES) {
+            final Path template = template(name);
+            assertEquals(name, new String(xom(template), StandardCharsets.UTF_8), new String(rewrite(template), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testLineBreaksOutsideOfRootElement() throws Exception {
+        final Path template = tmp.newFile("module.xml").toPath();
+        Files.write(template, ("<?xml version='1.0'?>\n\n<!--license-->\n<?pi data?>\n"
+                + "<module xmlns=\"urn:jboss:module:1.9\" name=\"a\"/>\n<!--trailing-->\n").getBytes(StandardCharsets.UTF_8));
+        assertEquals(DECLARATION + "<!--license-->\r\n<?pi data?>\r\n<module name=\"a\" xmlns=\"urn:jboss:module:1.9\"/>\r\n<!--trailing-->\r\n",
+                new String(rewrite(template), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLicenseHeaderIsFollowedByLineBreak() throws Exception {
+        final String output = new String(rewrite(template("server.xml")), StandardCharsets.UTF_8);
+        assertTrue(output, output.startsWith(DECLARATION + "<!--\n  ~ JBoss, Home of Professional Open Source."));
+        assertTrue(output, output.contains("  -->\r\n<module name=\"org.jboss.as.server\" xmlns=\"urn:jboss:module:1.9\">\n"));
+        assertTrue(output, output.contains("<resource-root path=\"wildfly-server-10.0.0.Final.jar\"/>"));
+        assertTrue(output, output.endsWith("</module>\r\n"));
+    }
+
+    private Path template(String name) throws Exception {
+        return Paths.get(getClass().getResource("module-templates/" + name).toURI());
+    }
+
+    private byte[] rewrite(Path template) throws Exception {
+        final Path target = tmp.getRoot().toPath().resolve("target.xml");
+        assertTrue(ModuleXmlRewriter.rewrite(template, target, new ModuleXmlRewriter.Handler() {
+            @Override
+            public String resolveVersion(String version) {
+                return VERSIONS.get(version);
+            }
+
+            @Override
+            public ModuleXmlRewriter.Artifact resolveArtifact(String name) {
+                final String[] replacement = ARTIFACTS.get(name);
+                if (replacement == null) {
+                    return null;
+                }
+                return "artifact".equals(replacement[0]) ? ModuleXmlRewriter.Artifact.coords(replacement[2])
+                        : ModuleXmlRewriter.Artifact.resourceRoot(replacement[2]);
+            }
+        }));
+        return Files.readAllBytes(target);
+    }
+
+    /**
+     * The module template processing as it was implemented with XOM.
+     */
+    private static byte[] xom(Path template) throws Exception {
+        final Document document;
+        try (BufferedReader reader = Files.newBufferedReader(template, StandardCharsets.UTF_8)) {
+            document = new Builder(false).build(reader);
+        }
+        final Element rootElement = document.getRootElement();
+        final Attribute versionAttribute = rootElement.getAttribute("version");
+        if (versionAttribute != null) {
+            final String version = VERSIONS.get(versionAttribute.getValue());
+            if (version != null) {
+                versionAttribute.setValue(version);
+            }
+        }
+        final Element resourcesElement = rootElement.getFirstChildElement("resources", rootElement.getNamespaceURI());
+        if (resourcesElement != null) {
+            final Elements artifacts = resourcesElement.getChildElements("artifact", rootElement.getNamespaceURI());
+            for (int i = 0; i < artifacts.size(); ++i) {
+                final Element element = artifacts.get(i);
+                final Attribute attribute = element.getAttribute("name");
+                final String[] replacement = ARTIFACTS.get(attribute.getValue());
+                if (replacement == null) {
+                    continue;
+                }
+                element.setLocalName(replacement[0]);
+                attribute.setLocalName(replacement[1]);
+                attribute.setValue(replacement[2]);
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Serializer(out).write(document);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how many times per second the buffered {@link PropertyReplacer} and the original char by char
+ * {@link LegacyPropertyReplacer} copy multi-megabyte content with few and with many expressions.
+ * Both read from a {@link BufferedReader} and write to a {@link BufferedWriter}, as the replacement of files does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PropertyReplacerBenchmark {
+
+    private static final String[] LINES = {
+            "    <subsystem xmlns=\"urn:jboss:domain:undertow:10.0\" default-server=\"default-server\">\n",
+            "        <buffer-cache name=\"default\"/>\n",
+            "            <http-listener name=\"default\" socket-binding=\"http\" redirect-socket=\"https\" enable-http2=\"true\"/>\n",
+            "# the price is $$5 and $x is not an expression\n",
+            "        <location name=\"/\" handler=\"welcome-content\"/>\n",
+    };
+
+    private static final String[] EXPRESSIONS = {
+            "${jboss.home.dir}${/}standalone${/}configuration",
+            "${missing.property,default-value}",
+            "${jboss.bind.address,${jboss.bind.address.default}}",
+            "${version}",
+    };
+
+    private static final Map<String, String> PROPS = new HashMap<>();
+    static {
+        PROPS.put("jboss.home.dir", "/opt/wildfly");
+        PROPS.put("jboss.bind.address", "127.0.0.1");
+        PROPS.put("version", "17.0.0.Final");
+    }
+
+    /**
+     * Size of the content in megabytes.
+     */
+    @Param({"4", "16"})
+    public int megabytes;
+
+    /**
+     * One expression per this many lines.
+     */
+    @Param({"1", "50"})
+    public int linesPerExpression;
+
+    private final PropertyResolver resolver = new MapPropertyResolver(PROPS);
+    private String content;
+
+    @Setup
+    public void setup() {
+        final int size = megabytes * 1024 * 1024;
+        final StringBuilder buf = new StringBuilder(size + 256);
+        int line = 0;
+        while (buf.length() < size) {
+            buf.append(LINES[line % LINES.length]);
+            if (line % linesPerExpression == 0) {
+                buf.append("        <property name=\"p").append(line).append("\" value=\"")
+                        .append(EXPRESSIONS[(line / linesPerExpression) % EXPRESSIONS.length]).append("\"/>\n");
+            }
+            ++line;
+        }
+        content = buf.toString();
+    }
+
+    @Benchmark
+    public long buffered() throws IOException {
+        final CountingWriter out = new CountingWriter();
+        try (BufferedReader reader = new BufferedReader(new StringReader(content));
+                BufferedWriter writer = new BufferedWriter(out)) {
+            PropertyReplacer.copy(reader, writer, resolver);
+        }
+        return out.count;
+    }
+
+    @Benchmark
+    public long charByChar() throws IOException {
+        final CountingWriter out = new CountingWriter();
+        try (BufferedReader reader = new BufferedReader(new StringReader(content));
+                BufferedWriter writer = new BufferedWriter(out)) {
+            LegacyPropertyReplacer.copy(reader, writer, resolver);
+        }
+        return out.count;
+    }
+
+    /**
+     * Discards the content, counting the chars so that the writing is not optimized away.
+     */
+    private static class CountingWriter extends Writer {
+
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PropertyReplacerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Compares the buffered {@link PropertyReplacer} with the original char by char implementation.
+ */
+public class PropertyReplacerTest {
+
+    private static final String[] CONTENT = {
+            "",
+            "no expressions",
+            "$",
+            "x$",
+            "$$",
+            "a$$b",
+            "$$$",
+            "$$${a}",
+            "$x",
+            "a$}b",
+            "${a}",
+            "${b}",
+            "x${a}y${a}z",
+            "${missing}",
+            "${}",
+            "${a",
+            "${missing",
+            "${a,b",
+            "${missing,b",
+            "${missing,a",
+            "${missing,b}",
+            "${missing,a}",
+            "${a,b}",
+            "${a,}",
+            "${missing,}",
+            "${/}",
+            "x${/}y",
+            "${/,x}",
+            "${/,x",
+            "${/,",
+            "${u,a}${a}",
+            "${u,b}${b}",
+            "${a,${b}}",
+            "${missing,${b}}",
+            "${a,b,c}",
+            "${missing,b,c}",
+            "${a}$",
+            "${missing,b}$$",
+    };
+
+    private static final PropertyResolver RESOLVER;
+    static {
+        final Map<String, String> props = new HashMap<>();
+        props.put("a", "A");
+        props.put("b", "${a}");
+        RESOLVER = new MapPropertyResolver(props);
+    }
+
+    @Test
+    public void testExpressions() throws Exception {
+        for (String content : CONTENT) {
+            assertSameResult(content);
+        }
+    }
+
+    @Test
+    public void testRandomContent() throws Exception {
+        final String chars = "$${},/ab ";
+        final Random random = new Random(1);
+        for (int i = 0; i < 5000; ++i) {
+            final StringBuilder buf = new StringBuilder();
+            final int length = random.nextInt(24);
+            for (int j = 0; j < length; ++j) {
+                buf.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            assertSameResult(buf.toString());
+        }
+    }
+
+    @Test
+    public void testResults() throws Exception {
+        assertEquals("$", replace("$$"));
+        assertEquals("x$", replace("x$"));
+        assertEquals("A", replace("${a,b"));
+        assertEquals("b", replace("${missing,b"));
+        assertEquals(File.separator, replace("${/,x}"));
+        assertEquals(File.separator, replace("${/,x"));
+        assertEquals("AA", replace("${u,a}${a}"));
+        assertEquals("${a}", replace("${b}"));
+        assertEquals("!Incomplete expression: a", replace("${a"));
+        assertEquals("!Failed to resolve property: missing", replace("${missing}"));
+    }
+
+    private static void assertSameResult(String content) throws IOException {
+        final String expected = legacy(content);
+        assertEquals(content, expected, replace(content));
+        for (int chunk = 1; chunk <= 4; ++chunk) {
+            assertEquals(content + " read by " + chunk, expected, replace(new ChunkedReader(content, chunk)));
+        }
+    }
+
+    private static String legacy(String content) throws IOException {
+        final StringWriter writer = new StringWriter();
+        try {
+            LegacyPropertyReplacer.copy(new StringReader(content), writer, RESOLVER);
+        } catch (IllegalStateException e) {
+            return '!' + e.getMessage();
+        }
+        return writer.toString();
+    }
+
+    private static String replace(String content) throws IOException {
+        return replace(new StringReader(content));
+    }
+
+    private static String replace(Reader reader) throws IOException {
+        final StringWriter writer = new StringWriter();
+        try {
+            PropertyReplacer.copy(reader, writer, RESOLVER);
+        } catch (IllegalStateException e) {
+            return '!' + e.getMessage();
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Returns at most the given number of chars per read, so that expressions span buffers.
+     */
+    private static class ChunkedReader extends Reader {
+
+        private final String content;
+        private final int chunk;
+        private int pos;
+
+        ChunkedReader(String content, int chunk) {
+            this.content = content;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pos == content.length()) {
+                return -1;
+            }
+            final int n = Math.min(Math.min(len, chunk), content.length() - pos);
+            content.getChars(pos, pos + n, cbuf, off);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProvisioningReportTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testAggregation() throws Exception {
+        final ProvisioningReport report = new ProvisioningReport();
+        final long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        report.committed(ProvisioningEvent.Type.PHASE, new Object[] {"packages"}, 10 * ms, 4 * ms);
+        report.committed(ProvisioningEvent.Type.PHASE, new Object[] {"packages"}, 5 * ms, -1);
+        report.committed(ProvisioningEvent.Type.PHASE, new Object[] {"configs"}, 7 * ms, 3 * ms);
+        report.committed(ProvisioningEvent.Type.ARTIFACT_RESOLUTION, new Object[] {"g:a", 100L}, ms, -1);
+        report.committed(ProvisioningEvent.Type.ARTIFACT_RESOLUTION, new Object[] {"g:b", null}, ms, -1);
+        report.committed(ProvisioningEvent.Type.ARTIFACT_INSTALL, new Object[] {"g:a", "link", 100L}, ms, -1);
+        report.committed(ProvisioningEvent.Type.ARTIFACT_INSTALL, new Object[] {"g:b", "copy", 20L}, ms, -1);
+        report.committed(ProvisioningEvent.Type.ARTIFACT_INSTALL, new Object[] {"g:c", "copy", 30L}, ms, -1);
+        report.committed(ProvisioningEvent.Type.JANDEX_INDEX, new Object[] {"g:a", "cached", 100L}, ms, -1);
+        report.committed(ProvisioningEvent.Type.JANDEX_INDEX, new Object[] {"g:b", "built", 20L}, ms, -1);
+        report.committed(ProvisioningEvent.Type.EMBEDDED_BOOT, new Object[] {"standalone"}, 3 * ms, -1);
+        report.committed(ProvisioningEvent.Type.CONFIG_OPERATION, new Object[] {"add", "/a=b"}, ms, -1);
+        report.committed(ProvisioningEvent.Type.CONFIG_FORK, new Object[] {"script", 1L}, 2 * ms, -1);
+        for (int i = 1; i <= 12; ++i) {
+            report.committed(ProvisioningEvent.Type.MODULE_TEMPLATE, new Object[] {"fp", "pkg", "m" + i}, i * ms, -1);
+        }
+
+        final String json = write(report);
+        assertTrue(json, json.startsWith("{\n  \"version\" : " + ProvisioningReport.VERSION + ",\n"));
+        assertTrue(json, json.contains("\"name\" : \"packages\",\n      \"count\" : 2,\n      \"wallMillis\" : 15,\n      \"cpuMillis\" : -1\n"));
+        assertTrue(json, json.contains("\"name\" : \"configs\",\n      \"count\" : 1,\n      \"wallMillis\" : 7,\n      \"cpuMillis\" : 3\n"));
+        assertTrue(json, json.indexOf("\"packages\"") < json.indexOf("\"configs\""));
+        assertTrue(json, json.contains("\"artifacts\" : {\n    \"resolved\" : 2,\n    \"resolvedBytes\" : 100,\n"
+                + "    \"copied\" : 2,\n    \"copiedBytes\" : 50,\n    \"linked\" : 1,\n    \"linkedBytes\" : 100\n  }"));
+        assertTrue(json, json.contains("\"jandex\" : {\n    \"built\" : 1,\n    \"cached\" : 1,\n    \"artifactBytes\" : 120\n  }"));
+        assertTrue(json, json.contains("\"configGeneration\" : {\n    \"embeddedBoots\" : 1,\n    \"embeddedBootMillis\" : 3,\n"
+                + "    \"managementOperations\" : 1,\n    \"forks\" : 1,\n    \"forkMillis\" : 2\n  }"));
+        assertTrue(json, json.contains("\"slowestTasks\" : [],"));
+
+        // the ten slowest modules, the slowest first
+        assertTrue(json, json.contains("\"slowestModules\" : [\n    {\n      \"featurePack\" : \"fp\",\n      \"package\" : \"pkg\",\n"
+                + "      \"module\" : \"m12\",\n      \"wallMillis\" : 12\n    },"));
+        assertTrue(json, json.indexOf("\"m12\"") < json.indexOf("\"m3\""));
+        assertTrue(json, json.contains("\"m3\""));
+        assertTrue(json, !json.contains("\"m2\""));
+        assertTrue(json, !json.contains("\"m1\""));
+    }
+
+    @Test
+    public void testEmptyReport() throws Exception {
+        final String json = write(new ProvisioningReport());
+        assertTrue(json, json.contains("\"phases\" : [],\n  \"slowestModules\" : [],\n  \"slowestTasks\" : [],\n"));
+        assertTrue(json, json.contains("\"resolved\" : 0,"));
+        assertTrue(json, json.endsWith("  }\n}\n"));
+    }
+
+    @Test
+    public void testStringsAreEscaped() throws Exception {
+        final ProvisioningReport report = new ProvisioningReport();
+        report.committed(ProvisioningEvent.Type.PHASE, new Object[] {"a\"b\\c\nd\te\u0001"}, 0, -1);
+        final String json = write(report);
+        assertTrue(json, json.contains("\"name\" : \"a\\\"b\\\\c\\nd\\te\\u0001\""));
+    }
+
+    @Test
+    public void testListenerIsPerThread() throws Exception {
+        final ProvisioningReport report = new ProvisioningReport();
+        final ProvisioningEvent.Listener previous = ProvisioningEvent.setListener(report);
+        try {
+            final AtomicReference<Boolean> childEnabled = new AtomicReference<>();
+            final Thread child = new Thread(() -> childEnabled.set(ProvisioningEvent.begin(ProvisioningEvent.Type.PHASE).isEnabled()));
+            child.start();
+            child.join();
+            assertTrue(childEnabled.get());
+
+            final AtomicReference<ProvisioningEvent.Listener> other = new AtomicReference<>();
+            final Thread unrelated = new Thread(() -> {
+                ProvisioningEvent.setListener(null);
+                other.set(ProvisioningEvent.setListener(new ProvisioningReport()));
+            });
+            unrelated.start();
+            unrelated.join();
+            assertNull(other.get());
+
+            ProvisioningEvent.begin(ProvisioningEvent.Type.PHASE).set("phase", "main").commit();
+        } finally {
+            assertSame(report, ProvisioningEvent.setListener(previous));
+        }
+        assertTrue(write(report).contains("\"name\" : \"main\""));
+    }
+
+    private String write(ProvisioningReport report) throws Exception {
+        final Path target = tmp.getRoot().toPath().resolve("dir").resolve("report.json");
+        report.write(target);
+        return new String(Files.readAllBytes(target), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.galleon.ProvisioningException;
+import org.junit.Test;
+
+public class TaskSchedulerTest {
+
+    private static final ParallelExecutor.Task NOOP = () -> {};
+
+    /**
+     * Records the dependencies computed by the scheduler instead of executing the tasks.
+     */
+    private static class RecordingExecutor extends ParallelExecutor {
+
+        List<int[]> dependencies;
+
+        RecordingExecutor() {
+            super(1);
+        }
+
+        @Override
+        public void execute(List<? extends Task> tasks, List<int[]> dependencies) {
+            this.dependencies = dependencies;
+        }
+    }
+
+    @Test
+    public void testIndependentTasks() throws Exception {
+        final List<int[]> deps = dependencies(
+                task(null, "modules/a"),
+                task(null, "modules/b"),
+                task("bin", "docs"));
+        assertDependencies(deps);
+    }
+
+    @Test
+    public void testConflictingOutputs() throws Exception {
+        final List<int[]> deps = dependencies(
+                task(null, "standalone/configuration"),
+                task(null, "standalone/configuration/standalone.xml"),
+                task(null, "standalone/configuration-other"),
+                task(null, "standalone"),
+                task(null, "/standalone/configuration/./"));
+        // a path overlaps everything underneath it but not its siblings with the same prefix
+        assertDependencies(deps, new int[0], new int[] {0}, new int[0], new int[] {2, 1, 0}, new int[] {3, 1, 0});
+    }
+
+    @Test
+    public void testInputAfterOutput() throws Exception {
+        final List<int[]> deps = dependencies(
+                task(null, "docs/licenses/licenses.xml"),
+                task("docs/licenses", "docs/licenses/licenses.html"),
+                task("docs/licenses/licenses.html", "bin"),
+                task("bin", "modules"),
+                task("docs", "welcome-content"));
+        assertDependencies(deps, new int[0], new int[] {0}, new int[] {1}, new int[] {2}, new int[] {1, 0});
+    }
+
+    @Test
+    public void testOutputAfterInput() throws Exception {
+        // a task must not overwrite what a preceding task reads
+        final List<int[]> deps = dependencies(
+                task("docs/licenses", "out"),
+                task(null, "docs/licenses/licenses.xml"),
+                task("docs/licenses", "out2"));
+        assertDependencies(deps, new int[0], new int[] {0}, new int[] {1});
+    }
+
+    @Test
+    public void testNullOutputsAreBarriers() throws Exception {
+        final RecordingExecutor executor = new RecordingExecutor();
+        final TaskScheduler scheduler = new TaskScheduler();
+        scheduler.add(NOOP, null, Collections.singletonList("a"));
+        scheduler.add(NOOP, null, Collections.singletonList("b"));
+        scheduler.add(NOOP, Collections.singletonList("a"), null);
+        scheduler.add(NOOP, null, Collections.singletonList("c"));
+        scheduler.add(NOOP, null, Collections.singletonList("d"));
+        scheduler.add(NOOP, null, null);
+        scheduler.add(NOOP, null, Collections.singletonList("e"));
+        scheduler.execute(executor);
+        assertDependencies(executor.dependencies, new int[0], new int[0], new int[] {1, 0}, new int[] {2}, new int[] {2},
+                new int[] {4, 3, 2}, new int[] {5});
+    }
+
+    @Test
+    public void testEmptyOutputsAreNotBarriers() throws Exception {
+        final List<int[]> deps = dependencies(
+                task(null, "a"),
+                Arrays.asList(null, Collections.emptyList()),
+                task(null, "b"));
+        assertDependencies(deps, new int[0], new int[0], new int[0]);
+    }
+
+    @Test
+    public void testConflictingTasksAreExecutedInOrder() throws Exception {
+        try (ParallelExecutor executor = new ParallelExecutor(4)) {
+            final List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+            final TaskScheduler scheduler = new TaskScheduler();
+            for (int i = 0; i < 50; ++i) {
+                final int task = i;
+                scheduler.add(() -> {
+                    if (task % 7 == 0) {
+                        Thread.sleep(5);
+                    }
+                    executed.add(task);
+                }, null, Collections.singletonList("modules/system"));
+            }
+            scheduler.execute(executor);
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 50; ++i) {
+                expected.add(i);
+            }
+            assertEquals(expected, executed);
+        }
+    }
+
+    @Test
+    public void testIndependentTasksAreExecutedConcurrently() throws Exception {
+        try (ParallelExecutor executor = new ParallelExecutor(2)) {
+            final CountDownLatch started = new CountDownLatch(2);
+            final TaskScheduler scheduler = new TaskScheduler();
+            for (String output : new String[] {"a", "b"}) {
+                scheduler.add(() -> {
+                    started.countDown();
+                    if (!started.await(10, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("The tasks were not executed concurrently");
+                    }
+                }, null, Collections.singletonList(output));
+            }
+            scheduler.execute(executor);
+        }
+    }
+
+    @Test
+    public void testFailurePropagation() throws Exception {
+        try (ParallelExecutor executor = new ParallelExecutor(4)) {
+            final IOException failure = new IOException("failed");
+            final AtomicBoolean dependentExecuted = new AtomicBoolean();
+            final TaskScheduler scheduler = new TaskScheduler();
+            scheduler.add(NOOP, null, Collections.singletonList("a"));
+            scheduler.add(() -> {
+                throw failure;
+            }, null, Collections.singletonList("b"));
+            scheduler.add(() -> dependentExecuted.set(true), Collections.singletonList("b"), Collections.singletonList("c"));
+            try {
+                scheduler.execute(executor);
+                fail("The failure was not propagated");
+            } catch (ProvisioningException e) {
+                assertSame(failure, e.getCause());
+            }
+            assertFalse(dependentExecuted.get());
+        }
+    }
+
+    @Test
+    public void testFirstFailureIsPropagated() throws Exception {
+        try (ParallelExecutor executor = new ParallelExecutor(4)) {
+            final CountDownLatch secondFailed = new CountDownLatch(1);
+            final IOException first = new IOException("first");
+            final TaskScheduler scheduler = new TaskScheduler();
+            scheduler.add(() -> {
+                secondFailed.await(10, TimeUnit.SECONDS);
+                throw first;
+            }, null, Collections.singletonList("a"));
+            scheduler.add(() -> {
+                secondFailed.countDown();
+                throw new IOException("second");
+            }, null, Collections.singletonList("b"));
+            try {
+                scheduler.execute(executor);
+                fail("The failure was not propagated");
+            } catch (ProvisioningException e) {
+                assertSame(first, e.getCause());
+            }
+        }
+    }
+
+    private static List<List<String>> task(String input, String output) {
+        return Arrays.asList(input == null ? null : Collections.singletonList(input), Collections.singletonList(output));
+    }
+
+    @SafeVarargs
+    private static List<int[]> dependencies(List<List<String>>... tasks) throws ProvisioningException {
+        final RecordingExecutor executor = new RecordingExecutor();
+        final TaskScheduler scheduler = new TaskScheduler();
+        assertTrue(scheduler.isEmpty());
+        for (List<List<String>> task : tasks) {
+            scheduler.add(NOOP, task.get(0), task.get(1));
+        }
+        scheduler.execute(executor);
+        return executor.dependencies;
+    }
+
+    private static void assertDependencies(List<int[]> actual, int[]... expected) {
+        if (expected.length == 0) {
+            for (int[] deps : actual) {
+                assertEquals(0, deps.length);
+            }
+            return;
+        }
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; ++i) {
+            assertArrayEquals("dependencies of task " + i, expected[i], actual.get(i));
+        }
+    }
+}
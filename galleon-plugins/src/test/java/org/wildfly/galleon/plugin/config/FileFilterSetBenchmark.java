@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jboss.galleon.util.ParsingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how many paths per second a typical artifact extraction filter list evaluates,
+ * with a {@link FileFilterSet} and with a regular expression per filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@OperationsPerInvocation(FileFilterSetBenchmark.PATHS)
+public class FileFilterSetBenchmark {
+
+    static final int PATHS = 10000;
+
+    private static final String[][] FILTERS = {
+            {"-", "META-INF/*.SF"},
+            {"-", "META-INF/*.DSA"},
+            {"-", "META-INF/*.RSA"},
+            {"+", "META-INF/services/*"},
+            {"+", "schema/*.xsd"},
+            {"+", "*.properties"},
+            {"-", "org/*/internal/*"},
+            {"+", "org/*.class"},
+            {"-", "*.htm?"},
+    };
+
+    private final String[] paths = new String[PATHS];
+    private final List<FileFilter> filters = new ArrayList<>();
+    private final List<Pattern> regexes = new ArrayList<>();
+    private FileFilterSet filterSet;
+
+    @Setup
+    public void setup() {
+        for (String[] f : FILTERS) {
+            final FileFilter filter = new FileFilter();
+            filter.setPatternString(f[1]);
+            if (f[0].equals("+")) {
+                filter.setInclude();
+            }
+            filters.add(filter);
+            regexes.add(Pattern.compile(ParsingUtils.wildcardToJavaRegexp(f[1])));
+        }
+        filterSet = new FileFilterSet(filters, false);
+        final String[] packages = {"org/jboss/as/server/", "org/jboss/as/server/internal/", "org/wildfly/extension/undertow/",
+                "META-INF/", "META-INF/services/", "schema/", "docs/"};
+        final String[] names = {"Main.class", "Bootstrap$1.class", "LocalDescriptions.properties", "MANIFEST.MF", "CERT.SF",
+                "org.jboss.msc.service.ServiceActivator", "jboss-as-server_1_0.xsd", "index.html"};
+        for (int i = 0; i < PATHS; ++i) {
+            paths[i] = packages[i % packages.length] + (i / packages.length) + '/' + names[i % names.length];
+        }
+    }
+
+    @Benchmark
+    public int filterSet() {
+        int included = 0;
+        for (String path : paths) {
+            if (filterSet.includeFile(path)) {
+                ++included;
+            }
+        }
+        return included;
+    }
+
+    @Benchmark
+    public int regexPerFilter() {
+        int included = 0;
+        for (String path : paths) {
+            for (int i = 0; i < regexes.size(); ++i) {
+                if (regexes.get(i).matcher(path).matches()) {
+                    if (filters.get(i).isInclude()) {
+                        ++included;
+                    }
+                    break;
+                }
+            }
+        }
+        return included;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FileFilterSetBenchmark.class.getSimpleName()).build()).run();
+    }
+}
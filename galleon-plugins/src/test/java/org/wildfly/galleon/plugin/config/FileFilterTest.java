@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jboss.galleon.util.ParsingUtils;
+import org.junit.Test;
+
+/**
+ * Compares the literal fast paths of {@link FileFilter} and the grouping of {@link FileFilterSet}
+ * with matching the regular expressions the wildcards translate to.
+ */
+public class FileFilterTest {
+
+    private static final String[] PATTERNS = {
+            "",
+            "*",
+            "**",
+            "?",
+            "*?",
+            "?*",
+            "a",
+            "a*",
+            "*a",
+            "*a*",
+            "a*b",
+            "a?b",
+            "a*b*",
+            "*a*b",
+            "a*b*c",
+            "a.b",
+            "a+b",
+            "*.jar",
+            "?.jar",
+            "bin/*",
+            "bin/*.sh",
+            "*/module.xml",
+            "modules/*/main/*",
+            "docs/schema/*.xsd",
+            "*standalone*",
+    };
+
+    private static final String[] PATHS = {
+            "",
+            "a",
+            "b",
+            "ab",
+            "ba",
+            "aab",
+            "abb",
+            "axb",
+            "a.b",
+            "axyzb",
+            "abc",
+            "axbxc",
+            "a+b",
+            "aab+",
+            "x.jar",
+            ".jar",
+            "xy.jar",
+            "bin/",
+            "bin/standalone.sh",
+            "bin/standalone.conf",
+            "module.xml",
+            "/module.xml",
+            "org/jboss/main/module.xml",
+            "modules/org/main/x.jar",
+            "docs/schema/jboss-as-config_1_0.xsd",
+            "standalone/configuration/standalone.xml",
+            "\n",
+            "a\n",
+            "\na",
+            "a\nb",
+            "a\rb",
+            "a\r\nb",
+            "a\u0085b",
+            "a\u2028b",
+            "a\u2029b",
+            "x\n.jar",
+            "x.jar\n",
+            "bin/\nstandalone.sh",
+            "bin/standalone.sh\n",
+            "a\nb\nc",
+            "xstandalone\n",
+            "\nstandalone",
+            "x\nstandalonex",
+            "org/\n/module.xml",
+    };
+
+    @Test
+    public void testFastPathMatchesRegex() {
+        for (String patternString : PATTERNS) {
+            final FileFilter filter = filter(patternString, true);
+            final Pattern regex = Pattern.compile(ParsingUtils.wildcardToJavaRegexp(patternString));
+            for (String path : PATHS) {
+                assertEquals(describe(patternString, path), regex.matcher(path).matches(), filter.matches(path));
+            }
+        }
+    }
+
+    @Test
+    public void testLiteralPatternsUseFastPath() {
+        assertFalse(filter("*", true).isRegex());
+        assertFalse(filter("bin/*.sh", true).isRegex());
+        assertFalse(filter("*standalone*", true).isRegex());
+        assertFalse(filter("docs/schema/*.xsd", true).isRegex());
+    }
+
+    @Test
+    public void testFilterSetMatchesFirstMatchingFilter() {
+        final List<List<FileFilter>> filterLists = new ArrayList<>();
+        filterLists.add(Arrays.asList(filter("*.jar", true)));
+        filterLists.add(Arrays.asList(filter("bin/*.sh", false), filter("bin/*", true)));
+        filterLists.add(Arrays.asList(filter("bin/*", true), filter("bin/*.sh", false)));
+        filterLists.add(Arrays.asList(filter("a?b", true), filter("a*b*c", true), filter("*.jar", true), filter("*", false)));
+        filterLists.add(Arrays.asList(filter("a+b", false), filter("a*", true), filter("?.jar", false), filter("*.jar", true)));
+        filterLists.add(Arrays.asList(filter("*standalone*", false), filter("*/module.xml", true),
+                filter("modules/*/main/*", true), filter("?", false), filter("*?", true)));
+        for (List<FileFilter> filters : filterLists) {
+            for (boolean defaultInclude : new boolean[] {false, true}) {
+                final FileFilterSet filterSet = new FileFilterSet(filters, defaultInclude);
+                for (String path : PATHS) {
+                    assertEquals(describe(filters.toString(), path), firstMatch(filters, path, defaultInclude), filterSet.includeFile(path));
+                }
+            }
+        }
+    }
+
+    private static boolean firstMatch(List<FileFilter> filters, String path, boolean defaultInclude) {
+        for (FileFilter filter : filters) {
+            if (Pattern.compile(ParsingUtils.wildcardToJavaRegexp(filter.getPattern())).matcher(path).matches()) {
+                return filter.isInclude();
+            }
+        }
+        return defaultInclude;
+    }
+
+    private static FileFilter filter(String pattern, boolean include) {
+        final FileFilter filter = new FileFilter();
+        filter.setPatternString(pattern);
+        if (include) {
+            filter.setInclude();
+        }
+        return filter;
+    }
+
+    private static String describe(String pattern, String path) {
+        return "pattern " + pattern + ", path " + path.replace("\n", "\\n").replace("\r", "\\r")
+                .replace("\u0085", "\\u0085").replace("\u2028", "\\u2028").replace("\u2029", "\\u2029");
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class FilePermissionsMatcherTest {
+
+    private static final String[] PATHS = {
+            "bin",
+            "bin/standalone.sh",
+            "bin/standalone.conf",
+            "bin/client/jboss-cli-client.jar",
+            "docs/schema/jboss-as-config_1_0.xsd",
+            "modules/system/layers/base/org/jboss/as/server/main/module.xml",
+            "standalone/configuration/standalone.xml",
+            "README.txt",
+    };
+
+    @Test
+    public void testExcludeAndIncludeOfTheSamePattern() {
+        final FilePermission exec = permission("755", include("bin/*.sh"));
+        final FilePermission noSh = permission("600", exclude("bin/*.sh"), include("bin/*"));
+
+        FilePermissionsMatcher matcher = new FilePermissionsMatcher(Arrays.asList(exec, noSh));
+        assertEquals(exec.getPermission(), matcher.getPermission("bin/standalone.sh"));
+        assertEquals(noSh.getPermission(), matcher.getPermission("bin/standalone.conf"));
+
+        final FilePermission all = permission("644", exclude("bin/*.sh"), include("*"));
+        matcher = new FilePermissionsMatcher(Arrays.asList(exec, all));
+        assertEquals(exec.getPermission(), matcher.getPermission("bin/standalone.sh"));
+        assertEquals(all.getPermission(), matcher.getPermission("README.txt"));
+
+        matcher = new FilePermissionsMatcher(Arrays.asList(all, exec));
+        assertEquals(exec.getPermission(), matcher.getPermission("bin/standalone.sh"));
+    }
+
+    @Test
+    public void testNoPermissionIncludesThePath() {
+        final FilePermissionsMatcher matcher = new FilePermissionsMatcher(Arrays.asList(
+                permission("755", include("bin/*.sh")),
+                permission("600", exclude("*"))));
+        assertNull(matcher.getPermission("README.txt"));
+        assertNull(matcher.getPermission("bin"));
+    }
+
+    @Test
+    public void testSameResultsAsApplyingEachPermission() {
+        final List<FilePermission> permissions = Arrays.asList(
+                permission("755", include("bin/*.sh")),
+                permission("644", include("bin/*"), exclude("bin/*.sh")),
+                permission("640", include("*standalone*"), exclude("bin/*")),
+                permission("600", exclude("bin/*.sh"), include("bin/*.s?")),
+                permission("700", include("modules/*/module.xml")),
+                permission("444", exclude("*.xsd"), include("docs/*")),
+                permission("664", include("docs/*"), exclude("*.xsd")));
+        final FilePermissionsMatcher matcher = new FilePermissionsMatcher(permissions);
+        for (String path : PATHS) {
+            Set<PosixFilePermission> expected = null;
+            for (FilePermission permission : permissions) {
+                if (permission.includeFile(path)) {
+                    expected = permission.getPermission();
+                }
+            }
+            assertEquals(path, expected, matcher.getPermission(path));
+        }
+    }
+
+    private static FilePermission permission(String value, FileFilter... filters) {
+        final FilePermission permission = new FilePermission();
+        permission.setValue(value);
+        for (FileFilter filter : filters) {
+            permission.addFilter(filter);
+        }
+        return permission;
+    }
+
+    private static FileFilter include(String pattern) {
+        final FileFilter filter = exclude(pattern);
+        filter.setInclude();
+        return filter;
+    }
+
+    private static FileFilter exclude(String pattern) {
+        final FileFilter filter = new FileFilter();
+        filter.setPatternString(pattern);
+        return filter;
+    }
+}
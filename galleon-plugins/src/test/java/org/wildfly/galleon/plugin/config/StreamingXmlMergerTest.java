@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-2019 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.galleon.plugin.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+
+public class StreamingXmlMergerTest {
+
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testMergeAtDepth2() throws Exception {
+        final List<Path> files = Arrays.asList(
+                write("a.xml", StandardCharsets.UTF_8, DECLARATION + "\n"
+                        + "<licenseSummary>\n"
+                        + "    <dependencies>\n"
+                        + "        <dependency>\n"
+                        + "            <groupId>org.jboss</groupId>\n"
+                        + "            <licenses><license><name>Apache License 2.0</name></license></licenses>\n"
+                        + "        </dependency>\n"
+                        + "    </dependencies>\n"
+                        + "</licenseSummary>"),
+                write("b.xml", StandardCharsets.UTF_8, DECLARATION + "\n"
+                        + "<licenseSummary>\n"
+                        + "    <dependencies>\n"
+                        + "        <dependency>\n"
+                        + "            <groupId>org.wildfly</groupId>\n"
+                        + "            <!-- the license -->\n"
+                        + "            <licenses><license><name>LGPL 2.1</name><url>http://x.org/?a=1&amp;b=2</url></license></licenses>\n"
+                        + "        </dependency>\n"
+                        + "        <dependency><groupId>org.wildfly.core</groupId></dependency>\n"
+                        + "    </dependencies>\n"
+                        + "</licenseSummary>"),
+                write("c.xml", StandardCharsets.UTF_8, DECLARATION + "\n"
+                        + "<licenseSummary><dependencies><dependency><groupId>caf\u00e9</groupId></dependency></dependencies></licenseSummary>"));
+
+        assertEquals(DECLARATION
+                + "<licenseSummary>\n"
+                + "    <dependencies>\n"
+                + "        <dependency>\n"
+                + "            <groupId>org.jboss</groupId>\n"
+                + "            <licenses><license><name>Apache License 2.0</name></license></licenses>\n"
+                + "        </dependency>\n"
+                + "    \n"
+                + "        <dependency>\n"
+                + "            <groupId>org.wildfly</groupId>\n"
+                + "            <!-- the license -->\n"
+                + "            <licenses><license><name>LGPL 2.1</name><url>http://x.org/?a=1&amp;b=2</url></license></licenses>\n"
+                + "        </dependency>\n"
+                + "        <dependency><groupId>org.wildfly.core</groupId></dependency>\n"
+                + "    <dependency><groupId>caf\u00e9</groupId></dependency></dependencies>\n"
+                + "</licenseSummary>", streamingMerge(files, 2));
+    }
+
+    @Test
+    public void testNonUtf8DocumentIsWrittenInUtf8() throws Exception {
+        final Charset latin1 = StandardCharsets.ISO_8859_1;
+        final List<Path> files = Arrays.asList(
+                write("a.xml", latin1, "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                        + "<licenseSummary><dependencies><dependency>caf\u00e9</dependency></dependencies></licenseSummary>"),
+                write("b.xml", latin1, "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                        + "<licenseSummary><dependencies><dependency>na\u00efve</dependency></dependencies></licenseSummary>"));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingXmlMerger.merge(files, 2, out);
+        final String merged = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(merged, merged.startsWith(DECLARATION));
+
+        final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("caf\u00e9na\u00efve", doc.getDocumentElement().getTextContent());
+    }
+
+    private Path write(String name, Charset charset, String content) throws Exception {
+        final Path file = tmp.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(charset));
+        return file;
+    }
+
+    private static String streamingMerge(List<Path> files, int mergeDepth) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingXmlMerger.merge(files, mergeDepth, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -27,6 +27,7 @@ import java.util.TreeMap;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.project.MavenProject;
+import org.wildfly.galleon.plugin.ArtifactVersions;
 
 /**
  * Maps groupId:artifactId[::classifier] to groupId:artifactId:version:[classifier]:type
@@ -101,4 +102,8 @@ class MavenProjectArtifactVersions {
             }
         }
     }
+
+    void storeIndex(Path props, Path target) throws IOException {
+        ArtifactVersions.writeIndex(versions, props, target);
+    }
 }
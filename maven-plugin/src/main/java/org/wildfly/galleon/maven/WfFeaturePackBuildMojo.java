@@ -48,6 +48,7 @@ import javax.xml.stream.XMLStreamException;
 
 import nu.xom.ParsingException;
 
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.DefaultArtifactHandler;
 import org.apache.maven.execution.MavenSession;
@@ -92,8 +93,11 @@ import org.jboss.galleon.xml.PackageXmlParser;
 import org.jboss.galleon.xml.PackageXmlWriter;
 import org.wildfly.galleon.plugin.ArtifactCoords;
 import org.wildfly.galleon.plugin.ArtifactCoords.Gav;
+import org.wildfly.galleon.plugin.ArtifactIndex;
+import org.wildfly.galleon.plugin.ModuleDescriptor;
+import org.wildfly.galleon.plugin.ModuleIndex;
+import org.wildfly.galleon.plugin.SchemaManifest;
 import org.wildfly.galleon.plugin.WfConstants;
-import org.wildfly.galleon.maven.ModuleParseResult.ModuleDependency;
 import org.wildfly.galleon.maven.build.tasks.ResourcesTask;
 
 /**
@@ -231,6 +235,8 @@ public class WfFeaturePackBuildMojo extends AbstractMojo {
     private MavenProjectHelper projectHelper;
 
     private MavenProjectArtifactVersions artifactVersions;
+    private final ModuleIndex moduleIndex = new ModuleIndex();
+    private final ArtifactIndex artifactIndex = new ArtifactIndex();
 
     private WildFlyFeaturePackBuild buildConfig;
     private Map<String, FeaturePackDescription> fpDependencies = Collections.emptyMap();
@@ -392,11 +398,32 @@ public class WfFeaturePackBuildMojo extends AbstractMojo {
             artifactVersions.remove(gav.getGroupId(), gav.getArtifactId());
         }
         try {
-            artifactVersions.store(resourcesWildFly.resolve(WfConstants.ARTIFACT_VERSIONS_PROPS));
+            final Path artifactVersionsProps = resourcesWildFly.resolve(WfConstants.ARTIFACT_VERSIONS_PROPS);
+            artifactVersions.store(artifactVersionsProps);
+            artifactVersions.storeIndex(artifactVersionsProps, resourcesWildFly.resolve(WfConstants.ARTIFACT_VERSIONS_INDEX));
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to store artifact versions", e);
         }
 
+        // module index
+        if(!moduleIndex.isEmpty()) {
+            try {
+                moduleIndex.store(resourcesWildFly);
+            } catch (IOException e) {
+                throw new MojoExecutionException(Errors.writeFile(resourcesWildFly.resolve(WfConstants.MODULE_INDEX)), e);
+            }
+        }
+
+        // artifact index
+        if(!artifactIndex.isEmpty()) {
+            final Path file = resourcesWildFly.resolve(WfConstants.ARTIFACT_INDEX);
+            try {
+                artifactIndex.store(file);
+            } catch (IOException e) {
+                throw new MojoExecutionException(Errors.writeFile(file), e);
+            }
+        }
+
         if(buildConfig.hasStandaloneExtensions()) {
             persistExtensions(resourcesWildFly, WfConstants.EXTENSIONS_STANDALONE, buildConfig.getStandaloneExtensions());
         }
@@ -596,6 +623,32 @@ public class WfFeaturePackBuildMojo extends AbstractMojo {
                 }
             }
         }
+
+        // record which artifacts of the schema groups include schemas, so that the others don't have to be opened at provisioning time
+        final SchemaManifest schemaManifest = new SchemaManifest();
+        for (Artifact artifact : project.getArtifacts()) {
+            if (!buildConfig.isSchemaGroup(artifact.getGroupId()) || artifact.getFile() == null) {
+                continue;
+            }
+            final Path artifactPath = artifact.getFile().toPath();
+            if (Files.isDirectory(artifactPath)) {
+                continue;
+            }
+            try {
+                schemaManifest.put(SchemaManifest.key(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                        artifact.getClassifier(), artifact.getType()), SchemaManifest.listSchemas(artifactPath));
+            } catch (IOException e) {
+                throw new MojoExecutionException(Errors.readFile(artifactPath), e);
+            }
+        }
+        if (!schemaManifest.isEmpty()) {
+            final Path schemaManifestTxt = schemaGroupsTxt.resolveSibling(WfConstants.SCHEMA_MANIFEST);
+            try {
+                schemaManifest.store(schemaManifestTxt);
+            } catch (IOException e) {
+                throw new MojoExecutionException(Errors.writeFile(schemaManifestTxt), e);
+            }
+        }
     }
 
     private void addConfigPackages(final Path configDir, final Path packagesDir, final FeaturePackDescription.Builder fpBuilder) throws MojoExecutionException {
@@ -807,15 +860,22 @@ public class WfFeaturePackBuildMojo extends AbstractMojo {
             IoUtils.copy(moduleXml.getParent(), targetXml.getParent());
 
             final PackageSpec.Builder pkgSpecBuilder = PackageSpec.builder(packageName);
-            final ModuleParseResult parsedModule;
             try {
-                parsedModule = ModuleXmlParser.parse(targetXml, WfConstants.UTF8);
-                if (!parsedModule.dependencies.isEmpty()) {
-                    for (ModuleDependency moduleDep : parsedModule.dependencies) {
-                        final ModuleIdentifier moduleId = moduleDep.getModuleId();
-                        String depName = moduleId.getName();
-                        if(!moduleId.getSlot().equals("main")) {
-                            depName += '.' + moduleId.getSlot();
+                final ModuleDescriptor parsedModule = ModuleDescriptor.parse(targetXml, WfConstants.UTF8);
+                for (ModuleDescriptor.Artifact artifact : parsedModule.getArtifacts()) {
+                    try {
+                        artifact.getHardCodedCoords();
+                    } catch (IllegalArgumentException e) {
+                        throw new ParsingException(e.getMessage(), e);
+                    }
+                }
+                moduleIndex.add(packageName, resourcesDir.relativize(moduleXml).toString(), parsedModule);
+                artifactIndex.addModule(packageName, parsedModule, artifactVersions::getVersion);
+                if (!parsedModule.getDependencies().isEmpty()) {
+                    for (ModuleDescriptor.Dependency moduleDep : parsedModule.getDependencies()) {
+                        String depName = moduleDep.getName();
+                        if(!moduleDep.getSlot().equals("main")) {
+                            depName += '.' + moduleDep.getSlot();
                         }
                         if (moduleXmlByPkgName.containsKey(depName)) {
                             PackageDependencySpec spec = getPackageDepSpec(packageName, moduleXml, moduleDep, depName);
@@ -872,7 +932,7 @@ public class WfFeaturePackBuildMojo extends AbstractMojo {
         }
     }
 
-    private PackageDependencySpec getPackageDepSpec(final String packageName, final Path moduleXml, ModuleDependency moduleDep,
+    private PackageDependencySpec getPackageDepSpec(final String packageName, final Path moduleXml, ModuleDescriptor.Dependency moduleDep,
             String depName) throws ParsingException {
         final String passiveValue = moduleDep.getProperty(WfConstants.GALLEON_PASSIVE);
         final PackageDependencySpec depSpec;